@@ -0,0 +1,59 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import services.Alphabet;
+import services.Histogram;
+import services.ParallelCounter;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counting letters of text which is already in memory
+ *
+ * @author tkaczenko
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CountingBenchmark {
+    @Param({"en", "ru", "uk"})
+    public String language;
+
+    @Param({"1024", "1048576", "67108864"})
+    public int size;
+
+    private String text;
+    private Alphabet alphabet;
+    private ParallelCounter counter;
+
+    @Setup
+    public void setUp() {
+        text = Texts.generate(language, size);
+        alphabet = Alphabet.forLocale(new Locale(language));
+        counter = new ParallelCounter(Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown
+    public void tearDown() {
+        counter.close();
+    }
+
+    @Benchmark
+    public Histogram count(ByteCounter bytes) {
+        Histogram histogram = new Histogram(alphabet);
+        histogram.count(text);
+        bytes.bytes += size * 2L;
+        return histogram;
+    }
+
+    @Benchmark
+    public Histogram countParallel(ByteCounter bytes) {
+        Histogram histogram = counter.count(text, alphabet);
+        bytes.bytes += size * 2L;
+        return histogram;
+    }
+}
@@ -0,0 +1,78 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import services.AnalystService;
+import services.TextSource;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading, decoding and analysis of files in UTF-8 and single-byte Cyrillic encodings
+ *
+ * @author tkaczenko
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileBenchmark {
+    @Param({"en", "ru", "uk"})
+    public String language;
+
+    @Param({"1024", "1048576", "104857600", "1073741824"})
+    public long size;
+
+    /**
+     * Number of counting threads, {@code 0} means all processors
+     */
+    @Param({"1", "0"})
+    public int parallelism;
+
+    @Param({"UTF-8", "windows-1251", "KOI8-U"})
+    public String encoding;
+
+    private Path path;
+    private Charset charset;
+    private long bytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        charset = Charset.forName(encoding);
+        path = Texts.file(language, size, charset);
+        bytes = Files.size(path);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * Read and decode file without counting
+     */
+    @Benchmark
+    public void read(ByteCounter counter, Blackhole blackhole) throws IOException {
+        TextSource.of(path, charset).read(blackhole::consume);
+        counter.bytes += bytes;
+    }
+
+    /**
+     * Whole analysis: reading, counting and range assignment
+     */
+    @Benchmark
+    public AnalystService analyse(ByteCounter counter) throws IOException {
+        AnalystService analyst = new AnalystService(path, charset, 5, new Locale(language));
+        analyst.setParallelism(parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism);
+        analyst.analyse();
+        counter.bytes += bytes;
+        return analyst;
+    }
+}
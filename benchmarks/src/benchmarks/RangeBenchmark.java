@@ -0,0 +1,46 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import services.AnalystService;
+import services.Ranges;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Range assignment of counted letters
+ *
+ * @author tkaczenko
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RangeBenchmark {
+    @Param({"en", "ru", "uk"})
+    public String language;
+
+    @Param({"2", "5", "33"})
+    public int numOfRange;
+
+    @Param({"EQUAL_WIDTH", "QUANTILE", "LOG_SCALE"})
+    public Ranges.Strategy strategy;
+
+    private AnalystService analyst;
+
+    @Setup
+    public void setUp() {
+        analyst = new AnalystService(Collections.emptyList(), numOfRange, new Locale(language));
+        analyst.setRangeStrategy(strategy);
+        analyst.add(Texts.generate(language, 1 << 20));
+    }
+
+    @Benchmark
+    public AnalystService computeRanges() {
+        analyst.computeRanges();
+        return analyst;
+    }
+}
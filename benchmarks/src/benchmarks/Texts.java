@@ -0,0 +1,89 @@
+package benchmarks;
+
+import services.Alphabet;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generator of reproducible texts for benchmarks
+ *
+ * @author tkaczenko
+ */
+final class Texts {
+    private static final long SEED = 42;
+
+    private Texts() {
+    }
+
+    /**
+     * @param language Language of text
+     * @param length   Number of characters
+     * @return Words of random letters of the language separated by spaces, punctuation and newlines
+     */
+    static String generate(String language, int length) {
+        Alphabet alphabet = Alphabet.forLocale(new Locale(language));
+        Random random = new Random(SEED);
+        StringBuilder text = new StringBuilder(length);
+        int word = 0;
+        while (text.length() < length) {
+            if (word > 2 + random.nextInt(8)) {
+                int separator = random.nextInt(20);
+                text.append(separator == 0 ? '\n' : separator == 1 ? ',' : ' ');
+                word = 0;
+            } else {
+                char letter = alphabet.letterAt(random.nextInt(alphabet.size()));
+                text.append(random.nextInt(10) == 0 ? letter : Character.toLowerCase(letter));
+                word++;
+            }
+        }
+        text.setLength(length);
+        return text.toString();
+    }
+
+    /**
+     * Write UTF-8 file of generated text
+     *
+     * @param language Language of text
+     * @param size     Number of bytes, file may be a few bytes longer
+     * @return Temporary file, it's deleted on exit
+     */
+    static Path file(String language, long size) throws IOException {
+        return file(language, size, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write file of generated text
+     *
+     * @param language Language of text
+     * @param size     Number of bytes, file may be a few bytes longer
+     * @param charset  Encoding of file
+     * @return Temporary file, it's deleted on exit
+     */
+    static Path file(String language, long size, Charset charset) throws IOException {
+        Path path = Files.createTempFile("bench-" + language + "-" + size + "-", ".txt");
+        path.toFile().deleteOnExit();
+        String block = generate(language, 1 << 20);
+        long blockSize = block.getBytes(charset).length;
+        try (BufferedWriter writer = Files.newBufferedWriter(path, charset)) {
+            long written = 0;
+            while (written < size) {
+                if (size - written >= blockSize) {
+                    writer.write(block);
+                    written += blockSize;
+                } else {
+                    String tail = block.substring(0, (int) Math.min(block.length(), size - written));
+                    writer.write(tail);
+                    written += tail.getBytes(charset).length;
+                }
+            }
+        }
+        return path;
+    }
+}
@@ -0,0 +1,297 @@
+package cli;
+
+import services.AnalysisResult;
+import services.AnalystService;
+import services.Analyzer;
+import services.EncodingDetector;
+import services.HistogramRecord;
+import services.LanguageDetector;
+import services.Metrics;
+import services.Ranges;
+import services.ResultWriter;
+import services.TextSource;
+import services.WordCounter;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Headless analysis of many files without JavaFX.
+ * <p>
+ * Usage: {@code java cli.Batch [--locale en|ru|uk|auto] [--ranges N] [--strategy equal_width|quantile|log_scale]
+ * [--parallelism N] [--charset NAME|auto] [--approximate TOLERANCE] [--words K] [--word-memory BYTES]
+ * [--format csv|json] [--save FILE] FILE|GLOB...}
+ * <p>
+ * Histograms and ranges of files are written to standard output as soon as files are analysed. All files of
+ * one language are analysed by one shared {@link Analyzer}.
+ * Errors are written to standard error. {@code --save} writes the sum of histograms of all files as
+ * {@link HistogramRecord}, so parts of corpus counted on different machines can be merged by {@link Merge}.
+ *
+ * @author tkaczenko
+ */
+public final class Batch {
+    private static final String USAGE = "Usage: java cli.Batch [--locale en|ru|uk|auto] [--ranges N] "
+            + "[--strategy equal_width|quantile|log_scale] [--parallelism N] [--charset NAME|auto] "
+            + "[--approximate TOLERANCE] [--words K] [--word-memory BYTES] [--format csv|json] [--save FILE] "
+            + "FILE|GLOB...";
+
+    /**
+     * Language of files, {@code null} if it's detected for every file
+     */
+    private Locale locale = Locale.ENGLISH;
+    private int numOfRange = 5;
+    private Ranges.Strategy strategy = Ranges.Strategy.EQUAL_WIDTH;
+    private double tolerance;
+    /**
+     * Number of the most frequent words written to JSON, {@code 0} if words aren't counted
+     */
+    private int topWords;
+    /**
+     * Bytes of word counter, {@code 0} if words are counted exactly
+     */
+    private int wordMemory = WordCounter.DEFAULT_MEMORY;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    /**
+     * Encoding of files, {@code null} if it's detected for every file
+     */
+    private Charset charset = StandardCharsets.UTF_8;
+    private ResultWriter.Format format = ResultWriter.Format.CSV;
+    /**
+     * File of histogram of all files or {@code null}
+     */
+    private Path save;
+    private final List<String> patterns = new ArrayList<>();
+
+    private Batch() {
+    }
+
+    public static void main(String[] args) {
+        Batch batch = new Batch();
+        try {
+            batch.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        Metrics.register();
+        try {
+            System.exit(batch.run() ? 0 : 1);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private void parse(String[] args) throws IllegalArgumentException {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                patterns.add(arg);
+                continue;
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value of " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--locale":
+                    locale = value.equalsIgnoreCase("auto") ? null : new Locale(value);
+                    break;
+                case "--ranges":
+                    numOfRange = positive(arg, value);
+                    if (numOfRange > AnalystService.MAX_NUM_OF_RANGE) {
+                        throw new IllegalArgumentException(arg + " must be at most " + AnalystService.MAX_NUM_OF_RANGE);
+                    }
+                    break;
+                case "--strategy":
+                    try {
+                        strategy = Ranges.Strategy.valueOf(value.toUpperCase(Locale.ROOT));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unknown strategy " + value);
+                    }
+                    break;
+                case "--parallelism":
+                    parallelism = positive(arg, value);
+                    break;
+                case "--charset":
+                    if (value.equalsIgnoreCase("auto")) {
+                        charset = null;
+                        break;
+                    }
+                    try {
+                        charset = Charset.forName(value);
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unknown charset " + value);
+                    }
+                    break;
+                case "--approximate":
+                    try {
+                        tolerance = Double.parseDouble(value);
+                    } catch (NumberFormatException e) {
+                        tolerance = -1;
+                    }
+                    if (!(tolerance > 0 && tolerance < 1)) {
+                        throw new IllegalArgumentException(arg + " must be from 0 to 1");
+                    }
+                    break;
+                case "--words":
+                    topWords = positive(arg, value);
+                    break;
+                case "--word-memory":
+                    try {
+                        wordMemory = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        wordMemory = -1;
+                    }
+                    if (wordMemory < 0) {
+                        throw new IllegalArgumentException(arg + " must be 0 for exact counting or positive");
+                    }
+                    break;
+                case "--save":
+                    save = Paths.get(value);
+                    break;
+                case "--format":
+                    try {
+                        format = ResultWriter.Format.valueOf(value.toUpperCase(Locale.ROOT));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unknown format " + value);
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        if (patterns.isEmpty()) {
+            throw new IllegalArgumentException("No files");
+        }
+        if (save != null && (locale == null || tolerance > 0)) {
+            // Histograms of different alphabets or estimated ones can't be merged
+            throw new IllegalArgumentException("--save needs --locale and exact counting");
+        }
+    }
+
+    private static int positive(String option, String value) throws IllegalArgumentException {
+        try {
+            int res = Integer.parseInt(value);
+            if (res > 0) {
+                return res;
+            }
+        } catch (NumberFormatException ignored) {
+            // Reported below
+        }
+        throw new IllegalArgumentException(option + " must be positive integer");
+    }
+
+    /**
+     * Analyse all files
+     *
+     * @return {@code true} if all files are analysed
+     */
+    private boolean run() throws IOException {
+        List<Path> files = expand();
+        int threads = Math.max(1, Math.min(parallelism, files.size()));
+        int perFile = Math.max(1, parallelism / Math.max(1, files.size()));
+        ResultWriter writer = new ResultWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), format);
+        writer.setTopWords(topWords);
+        PrintStream err = System.err;
+
+        List<HistogramRecord> records = Collections.synchronizedList(new ArrayList<>());
+        Map<Locale, Analyzer> analyzers = new ConcurrentHashMap<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Boolean>> results = new ArrayList<>(files.size());
+        for (Path file : files) {
+            results.add(executor.submit(() -> {
+                try {
+                    Charset encoding = charset != null ? charset : EncodingDetector.detect(file);
+                    Locale language = locale;
+                    if (language == null) {
+                        Locale detected = LanguageDetector.detect(file, encoding);
+                        language = detected != null ? detected : Locale.ENGLISH;
+                    }
+                    Analyzer analyzer = analyzers.computeIfAbsent(language, key -> Analyzer.builder(key)
+                            .numOfRange(numOfRange)
+                            .rangeStrategy(strategy)
+                            .parallelism(perFile)
+                            .tolerance(tolerance)
+                            .wordMemory(topWords > 0 ? wordMemory : -1)
+                            .build());
+                    AnalysisResult result = analyzer.analyse(TextSource.of(file, encoding));
+                    writer.write(file.toString(), result);
+                    if (save != null) {
+                        records.add(new HistogramRecord(result.getHistogram(), HistogramRecord.hash(file), 1));
+                    }
+                    return true;
+                } catch (IOException | IllegalArgumentException e) {
+                    err.println(file + ": " + e.getMessage());
+                    return false;
+                }
+            }));
+        }
+        executor.shutdown();
+
+        boolean success = !files.isEmpty();
+        for (Future<Boolean> result : results) {
+            try {
+                success &= result.get();
+            } catch (Exception e) {
+                err.println(e);
+                success = false;
+            }
+        }
+        if (save != null && !records.isEmpty()) {
+            HistogramRecord.merge(records).write(save);
+        }
+        return success;
+    }
+
+    /**
+     * Find files of all arguments. Argument with {@code *?[{} is glob which is matched against
+     * files under its directory part.
+     */
+    private List<Path> expand() throws IOException {
+        Set<Path> files = new LinkedHashSet<>();
+        for (String pattern : patterns) {
+            int start = indexOfGlob(pattern);
+            if (start < 0) {
+                files.add(Paths.get(pattern));
+                continue;
+            }
+            int separator = Math.max(pattern.lastIndexOf('/', start), pattern.lastIndexOf('\\', start));
+            Path base = Paths.get(separator < 0 ? "." : pattern.substring(0, separator + 1));
+            String glob = separator < 0 ? pattern : pattern.substring(separator + 1);
+            PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+            int before = files.size();
+            try (Stream<Path> stream = Files.walk(base)) {
+                stream.filter(Files::isRegularFile)
+                        .filter(path -> matcher.matches(base.relativize(path)))
+                        .sorted()
+                        .forEach(files::add);
+            }
+            if (files.size() == before) {
+                System.err.println(pattern + ": no files");
+            }
+        }
+        return new ArrayList<>(files);
+    }
+
+    private static int indexOfGlob(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            if ("*?[{".indexOf(pattern.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,147 @@
+package cli;
+
+import services.Alphabet;
+import services.Cryptanalyst;
+import services.EncodingDetector;
+import services.ProgressMonitor;
+import services.TextSource;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Key search of shift and Vigenère ciphers.
+ * <p>
+ * Usage: {@code java cli.Crack [--locale en|ru|uk] [--charset NAME|auto] [--max-key-length N] [--output FILE]
+ * FILE}
+ * <p>
+ * Mean index of coincidence and the best key of every key length are written to standard output, followed by
+ * the most likely key. {@code --output} decrypts file with this key.
+ *
+ * @author tkaczenko
+ */
+public final class Crack {
+    private static final String USAGE = "Usage: java cli.Crack [--locale en|ru|uk] [--charset NAME|auto] "
+            + "[--max-key-length N] [--output FILE] FILE";
+
+    private Locale locale = Locale.ENGLISH;
+    /**
+     * Encoding of file, {@code null} if it's detected
+     */
+    private Charset charset;
+    private int maxKeyLength = Cryptanalyst.MAX_KEY_LENGTH;
+    private Path output;
+    private Path file;
+
+    private Crack() {
+    }
+
+    public static void main(String[] args) {
+        Crack crack = new Crack();
+        try {
+            crack.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        try {
+            crack.run();
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private void parse(String[] args) throws IllegalArgumentException {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                if (file != null) {
+                    throw new IllegalArgumentException("Only one file can be cracked");
+                }
+                file = Paths.get(arg);
+                continue;
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value of " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--locale":
+                    locale = new Locale(value);
+                    break;
+                case "--charset":
+                    if (value.equalsIgnoreCase("auto")) {
+                        charset = null;
+                        break;
+                    }
+                    try {
+                        charset = Charset.forName(value);
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unknown charset " + value);
+                    }
+                    break;
+                case "--max-key-length":
+                    maxKeyLength = positive(arg, value);
+                    break;
+                case "--output":
+                    output = Paths.get(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        if (file == null) {
+            throw new IllegalArgumentException("No file");
+        }
+    }
+
+    private static int positive(String arg, String value) throws IllegalArgumentException {
+        try {
+            int res = Integer.parseInt(value);
+            if (res > 0) {
+                return res;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException(arg + " must be a positive number");
+    }
+
+    private void run() throws IOException, IllegalArgumentException {
+        Charset encoding = charset != null ? charset : EncodingDetector.detect(file);
+        TextSource source = TextSource.of(file, encoding);
+        try (Cryptanalyst cryptanalyst = new Cryptanalyst(Alphabet.forLocale(locale),
+                Runtime.getRuntime().availableProcessors())) {
+            Cryptanalyst.Columns columns = cryptanalyst.columns(source, maxKeyLength, ProgressMonitor.NONE);
+            List<Cryptanalyst.Key> keys = cryptanalyst.keys(columns);
+            Cryptanalyst.Key key = cryptanalyst.crack(columns);
+
+            PrintWriter out = new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            out.printf(Locale.ROOT, "letters: %d, expected index: %.4f, random index: %.4f%n", columns.letters(),
+                    cryptanalyst.getExpectedIndex(), cryptanalyst.getRandomIndex());
+            for (Cryptanalyst.Key candidate : keys) {
+                out.printf(Locale.ROOT, "%3d  %.4f  %12.1f  %s%n", candidate.getLength(), candidate.getIndex(),
+                        candidate.getChiSquared(), candidate.getLetters());
+            }
+            out.printf("key: %s%n", key.getLetters());
+            out.flush();
+
+            if (output != null) {
+                try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+                    cryptanalyst.decrypt(source, key.getShifts(), writer, ProgressMonitor.NONE);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package cli;
+
+import services.AnalystService;
+import services.ColoredExporter;
+import services.EncodingDetector;
+import services.ProgressMonitor;
+import services.Ranges;
+import services.TextSource;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Text of file with letters colored by ranges of their frequencies.
+ * <p>
+ * Usage: {@code java cli.Export [--locale en|ru|uk|auto] [--ranges N] [--strategy equal_width|quantile|log_scale]
+ * [--charset NAME|auto] [--html FILE] FILE}
+ * <p>
+ * File is analysed and then streamed again to standard output with terminal colors or to HTML file.
+ *
+ * @author tkaczenko
+ */
+public final class Export {
+    private static final String USAGE = "Usage: java cli.Export [--locale en|ru|uk|auto] [--ranges N] "
+            + "[--strategy equal_width|quantile|log_scale] [--charset NAME|auto] [--html FILE] FILE";
+
+    /**
+     * Language of file, {@code null} if it's detected
+     */
+    private Locale locale;
+    private int numOfRange = 5;
+    private Ranges.Strategy strategy = Ranges.Strategy.EQUAL_WIDTH;
+    /**
+     * Encoding of file, {@code null} if it's detected
+     */
+    private Charset charset;
+    private Path html;
+    private Path file;
+
+    private Export() {
+    }
+
+    public static void main(String[] args) {
+        Export export = new Export();
+        try {
+            export.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        try {
+            export.run();
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private void parse(String[] args) throws IllegalArgumentException {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                if (file != null) {
+                    throw new IllegalArgumentException("Only one file can be exported");
+                }
+                file = Paths.get(arg);
+                continue;
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value of " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--locale":
+                    locale = value.equalsIgnoreCase("auto") ? null : new Locale(value);
+                    break;
+                case "--ranges":
+                    try {
+                        numOfRange = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        numOfRange = 0;
+                    }
+                    if (numOfRange < 1 || numOfRange > AnalystService.MAX_NUM_OF_RANGE) {
+                        throw new IllegalArgumentException(arg + " must be from 1 to "
+                                + AnalystService.MAX_NUM_OF_RANGE);
+                    }
+                    break;
+                case "--strategy":
+                    try {
+                        strategy = Ranges.Strategy.valueOf(value.toUpperCase(Locale.ROOT));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unknown strategy " + value);
+                    }
+                    break;
+                case "--charset":
+                    if (value.equalsIgnoreCase("auto")) {
+                        charset = null;
+                        break;
+                    }
+                    try {
+                        charset = Charset.forName(value);
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unknown charset " + value);
+                    }
+                    break;
+                case "--html":
+                    html = Paths.get(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        if (file == null) {
+            throw new IllegalArgumentException("No file");
+        }
+    }
+
+    private void run() throws IOException, IllegalArgumentException {
+        Charset encoding = charset != null ? charset : EncodingDetector.detect(file);
+        AnalystService analyst = new AnalystService(file, encoding, numOfRange,
+                locale != null ? locale : Locale.ENGLISH);
+        analyst.setAutoLanguage(locale == null);
+        analyst.setParallelism(Runtime.getRuntime().availableProcessors());
+        analyst.setRangeStrategy(strategy);
+        analyst.analyse();
+
+        int[] colors = ColoredExporter.palette(numOfRange);
+        if (html != null) {
+            new ColoredExporter(analyst.getRangeTable(), colors, ColoredExporter.Format.HTML)
+                    .export(file, encoding, html, ProgressMonitor.NONE);
+            return;
+        }
+        Writer out = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+        new ColoredExporter(analyst.getRangeTable(), colors, ColoredExporter.Format.ANSI)
+                .export(TextSource.of(file, encoding), file.toString(), out, ProgressMonitor.NONE);
+    }
+}
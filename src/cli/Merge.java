@@ -0,0 +1,139 @@
+package cli;
+
+import services.AnalysisResult;
+import services.AnalystService;
+import services.Analyzer;
+import services.HistogramRecord;
+import services.Ranges;
+import services.ResultWriter;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Merge of histograms of parts of corpus saved by {@code Batch --save}.
+ * <p>
+ * Usage: {@code java cli.Merge [--ranges N] [--strategy equal_width|quantile|log_scale] [--format csv|json]
+ * [--output FILE] RECORD...}
+ * <p>
+ * Ranges of the merged histogram are written to standard output. Records with the same source hash are
+ * merged once, so a part which is sent twice isn't counted twice. {@code --output} saves the merged record,
+ * so it can be merged again.
+ *
+ * @author tkaczenko
+ */
+public final class Merge {
+    private static final String USAGE = "Usage: java cli.Merge [--ranges N] "
+            + "[--strategy equal_width|quantile|log_scale] [--format csv|json] [--output FILE] RECORD...";
+
+    private int numOfRange = 5;
+    private Ranges.Strategy strategy = Ranges.Strategy.EQUAL_WIDTH;
+    private ResultWriter.Format format = ResultWriter.Format.CSV;
+    private Path output;
+    private final List<Path> inputs = new ArrayList<>();
+
+    private Merge() {
+    }
+
+    public static void main(String[] args) {
+        Merge merge = new Merge();
+        try {
+            merge.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        try {
+            merge.run();
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private void parse(String[] args) throws IllegalArgumentException {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                inputs.add(Paths.get(arg));
+                continue;
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value of " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--ranges":
+                    try {
+                        numOfRange = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        numOfRange = 0;
+                    }
+                    if (numOfRange < 1 || numOfRange > AnalystService.MAX_NUM_OF_RANGE) {
+                        throw new IllegalArgumentException(arg + " must be from 1 to "
+                                + AnalystService.MAX_NUM_OF_RANGE);
+                    }
+                    break;
+                case "--strategy":
+                    try {
+                        strategy = Ranges.Strategy.valueOf(value.toUpperCase(Locale.ROOT));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unknown strategy " + value);
+                    }
+                    break;
+                case "--format":
+                    try {
+                        format = ResultWriter.Format.valueOf(value.toUpperCase(Locale.ROOT));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unknown format " + value);
+                    }
+                    break;
+                case "--output":
+                    output = Paths.get(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        if (inputs.isEmpty()) {
+            throw new IllegalArgumentException("No records");
+        }
+    }
+
+    private void run() throws IOException, IllegalArgumentException {
+        List<HistogramRecord> records = new ArrayList<>(inputs.size());
+        Set<String> hashes = new HashSet<>();
+        for (Path input : inputs) {
+            HistogramRecord record;
+            try {
+                record = HistogramRecord.read(input);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(input + ": " + e.getMessage());
+            }
+            String hash = record.getHashHex();
+            if (!hash.isEmpty() && !hashes.add(hash)) {
+                System.err.println(input + ": the same part is merged already");
+                continue;
+            }
+            records.add(record);
+        }
+        HistogramRecord merged = HistogramRecord.merge(records);
+        if (output != null) {
+            merged.write(output);
+        }
+
+        // Ranges are computed from the merged counters like from counted text
+        AnalysisResult result = Analyzer.builder(merged.getHistogram().getAlphabet().getLocale())
+                .numOfRange(numOfRange)
+                .rangeStrategy(strategy)
+                .build()
+                .result(merged.getHistogram());
+        ResultWriter writer = new ResultWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), format);
+        writer.write(merged.getSources() + " sources", result);
+    }
+}
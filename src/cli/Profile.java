@@ -0,0 +1,188 @@
+package cli;
+
+import services.Alphabet;
+import services.EncodingDetector;
+import services.LanguageDetector;
+import services.ParallelCounter;
+import services.ProgressMonitor;
+import services.TextSource;
+import services.WindowProfiler;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Letter frequencies of sliding windows of file as CSV time series.
+ * <p>
+ * Usage: {@code java cli.Profile [--locale en|ru|uk|auto] [--charset NAME|auto] [--unit letters|lines]
+ * [--window N] [--step N] [--reference language|text] FILE}
+ * <p>
+ * Every row is a window: its number, offsets of its first character and after the last one, number of letters,
+ * divergence from the reference profile and frequencies of all letters of alphabet. The default reference is
+ * the profile of the language. {@code --reference text} compares windows with the whole file, so the file is
+ * read twice: it's counted in parallel before windows.
+ *
+ * @author tkaczenko
+ */
+public final class Profile {
+    private static final String USAGE = "Usage: java cli.Profile [--locale en|ru|uk|auto] [--charset NAME|auto] "
+            + "[--unit letters|lines] [--window N] [--step N] [--reference language|text] FILE";
+
+    /**
+     * Language of file, {@code null} if it's detected
+     */
+    private Locale locale;
+    /**
+     * Encoding of file, {@code null} if it's detected
+     */
+    private Charset charset;
+    private WindowProfiler.Unit unit = WindowProfiler.Unit.LETTERS;
+    private int window = 1000;
+    private int step = 1000;
+    private boolean textReference;
+    private Path file;
+
+    private Profile() {
+    }
+
+    public static void main(String[] args) {
+        Profile profile = new Profile();
+        try {
+            profile.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        try {
+            profile.run();
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private void parse(String[] args) throws IllegalArgumentException {
+        boolean stepGiven = false;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                if (file != null) {
+                    throw new IllegalArgumentException("Only one file can be profiled");
+                }
+                file = Paths.get(arg);
+                continue;
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value of " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--locale":
+                    locale = value.equalsIgnoreCase("auto") ? null : new Locale(value);
+                    break;
+                case "--charset":
+                    if (value.equalsIgnoreCase("auto")) {
+                        charset = null;
+                        break;
+                    }
+                    try {
+                        charset = Charset.forName(value);
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unknown charset " + value);
+                    }
+                    break;
+                case "--unit":
+                    try {
+                        unit = WindowProfiler.Unit.valueOf(value.toUpperCase(Locale.ROOT));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unknown unit " + value);
+                    }
+                    break;
+                case "--window":
+                    window = positive(arg, value);
+                    break;
+                case "--step":
+                    step = positive(arg, value);
+                    stepGiven = true;
+                    break;
+                case "--reference":
+                    if (!value.equals("language") && !value.equals("text")) {
+                        throw new IllegalArgumentException("Unknown reference " + value);
+                    }
+                    textReference = value.equals("text");
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        if (file == null) {
+            throw new IllegalArgumentException("No file");
+        }
+        if (!stepGiven) {
+            // Windows don't overlap by default
+            step = window;
+        }
+    }
+
+    private static int positive(String arg, String value) throws IllegalArgumentException {
+        try {
+            int res = Integer.parseInt(value);
+            if (res > 0) {
+                return res;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException(arg + " must be a positive number");
+    }
+
+    private void run() throws IOException, IllegalArgumentException {
+        Charset encoding = charset != null ? charset : EncodingDetector.detect(file);
+        Locale language = locale != null ? locale : LanguageDetector.detect(file, encoding);
+        Alphabet alphabet = Alphabet.forLocale(language != null ? language : Locale.ENGLISH);
+
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+        StringBuilder header = new StringBuilder("window,start,end,letters,divergence");
+        for (int i = 0; i < alphabet.size(); i++) {
+            header.append(',').append(alphabet.letterAt(i));
+        }
+        out.write(header.append('\n').toString());
+
+        StringBuilder row = new StringBuilder();
+        WindowProfiler profiler = new WindowProfiler(alphabet, unit, window, step, current -> {
+            row.setLength(0);
+            row.append(current.getIndex()).append(',').append(current.getStart()).append(',')
+                    .append(current.getEnd()).append(',').append(current.letters()).append(',')
+                    .append(String.format(Locale.ROOT, "%.5f", current.getDivergence()));
+            for (int i = 0; i < alphabet.size(); i++) {
+                row.append(',').append(current.get(i));
+            }
+            row.append('\n');
+            try {
+                out.append(row);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        if (textReference) {
+            try (ParallelCounter counter = new ParallelCounter(Runtime.getRuntime().availableProcessors())) {
+                profiler.setReference(counter.count(file, encoding, alphabet));
+            }
+        }
+        try {
+            profiler.profile(TextSource.of(file, encoding), ProgressMonitor.NONE);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+    }
+}
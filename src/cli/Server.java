@@ -0,0 +1,388 @@
+package cli;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import services.Alphabet;
+import services.AnalysisResult;
+import services.AnalystService;
+import services.Analyzer;
+import services.EncodingDetector;
+import services.LanguageDetector;
+import services.Metrics;
+import services.Ranges;
+import services.ResultWriter;
+import services.TextSource;
+import services.WordCounter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local HTTP service of analysis without JavaFX.
+ * <p>
+ * Usage: {@code java cli.Server [--host HOST] [--port N] [--concurrency N] [--wait MILLIS] [--max-body BYTES]
+ * [--root DIR]}
+ * <p>
+ * {@code POST /analyse} analyses text of request body, {@code GET /analyse?path=FILE} analyses file under
+ * {@code --root}. Both accept parameters {@code locale=en|ru|uk|auto}, {@code ranges}, {@code strategy},
+ * {@code charset=NAME|auto} and {@code words} (number of the most frequent words), the result is JSON object of
+ * {@link ResultWriter#toJson(String, AnalysisResult, int)}.
+ * {@code GET /health} answers {@code ok}.
+ * <p>
+ * Requests are handled on virtual threads when Java has them, otherwise on a fixed pool with a bounded queue,
+ * requests which don't fit into the queue get {@code 503} at once from a small overflow pool. At most
+ * {@code --concurrency} texts are analysed at once, other requests wait up to {@code --wait} milliseconds and
+ * then get {@code 503} with {@code Retry-After}, so load doesn't pile up in memory. Requests with the same
+ * language and settings share one {@link Analyzer}.
+ *
+ * @author tkaczenko
+ */
+public final class Server {
+    private static final String USAGE = "Usage: java cli.Server [--host HOST] [--port N] [--concurrency N] "
+            + "[--wait MILLIS] [--max-body BYTES] [--root DIR]";
+
+    /**
+     * Number of connections waiting to be accepted
+     */
+    private static final int BACKLOG = 1024;
+
+    /**
+     * Seconds given to client to send request line and headers
+     */
+    private static final int REQUEST_TIMEOUT = 30;
+
+    private String host = "127.0.0.1";
+    private int port = 8080;
+    private int concurrency = Runtime.getRuntime().availableProcessors();
+    private int wait = 100;
+    private int maxBody = 16 * 1024 * 1024;
+    /**
+     * Directory of files which can be analysed by path, {@code null} if only texts of requests are analysed
+     */
+    private Path root;
+
+    private Semaphore permits;
+
+    /**
+     * Whether request is handled by a thread of the overflow pool, which only answers {@code 503}
+     */
+    private final ThreadLocal<Boolean> rejected = ThreadLocal.withInitial(() -> false);
+
+    /**
+     * Pool for requests which don't fit into the queue of the main pool, {@code null} on virtual threads
+     */
+    private ExecutorService overflow;
+
+    /**
+     * Analyzers by language and settings of requests
+     */
+    private final Map<String, Analyzer> analyzers = new ConcurrentHashMap<>();
+
+    private Server() {
+    }
+
+    public static void main(String[] args) {
+        Server server = new Server();
+        try {
+            server.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        Metrics.register();
+        try {
+            server.start();
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private void parse(String[] args) throws IllegalArgumentException {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value of " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--host":
+                    host = value;
+                    break;
+                case "--port":
+                    port = positive(arg, value);
+                    break;
+                case "--concurrency":
+                    concurrency = positive(arg, value);
+                    break;
+                case "--wait":
+                    wait = positive(arg, value);
+                    break;
+                case "--max-body":
+                    maxBody = positive(arg, value);
+                    break;
+                case "--root":
+                    root = Paths.get(value).toAbsolutePath().normalize();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+    }
+
+    private static int positive(String option, String value) throws IllegalArgumentException {
+        try {
+            int res = Integer.parseInt(value);
+            if (res > 0) {
+                return res;
+            }
+        } catch (NumberFormatException ignored) {
+            // Reported below
+        }
+        throw new IllegalArgumentException(option + " must be positive integer");
+    }
+
+    private void start() throws IOException {
+        // Connection which doesn't send its request in time is closed instead of holding a thread
+        System.getProperties().putIfAbsent("sun.net.httpserver.maxReqTime", String.valueOf(REQUEST_TIMEOUT));
+        permits = new Semaphore(concurrency);
+        ExecutorService executor = newExecutor();
+        HttpServer server = HttpServer.create(new InetSocketAddress(host, port), BACKLOG);
+        server.setExecutor(executor);
+        server.createContext("/analyse", this::analyse);
+        server.createContext("/health", exchange -> send(exchange, 200, "text/plain", "ok"));
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(1);
+            executor.shutdown();
+            if (overflow != null) {
+                overflow.shutdown();
+            }
+        }));
+        System.err.println("Listening on " + server.getAddress());
+    }
+
+    /**
+     * Thread per request is cheap on virtual threads, because waiting for permit or client doesn't hold
+     * a platform thread. Without them both threads and queue of the pool are bounded. Request which doesn't
+     * fit into the queue is handed off to the small overflow pool, whose threads answer {@code 503} without
+     * waiting for permit. The dispatcher thread never runs requests, because the exchange reads request line
+     * and headers from the client before the handler is called.
+     */
+    private ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            overflow = Executors.newFixedThreadPool(concurrency, request -> new Thread(() -> {
+                rejected.set(true);
+                request.run();
+            }, "server-overflow"));
+            return new ThreadPoolExecutor(concurrency * 2, concurrency * 2, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(concurrency * 2), (request, pool) -> overflow.execute(request));
+        }
+    }
+
+    private void analyse(HttpExchange exchange) throws IOException {
+        try {
+            Map<String, String> params = params(exchange.getRequestURI().getRawQuery());
+            String method = exchange.getRequestMethod();
+            if (!method.equals("POST") && !(method.equals("GET") && params.containsKey("path"))) {
+                exchange.getResponseHeaders().set("Allow", "GET, POST");
+                send(exchange, 405, "text/plain", "POST text or GET with path");
+                return;
+            }
+            // Body is read after taking permit, so memory of bodies is bounded by concurrency
+            if (rejected.get() || !permits.tryAcquire(wait, TimeUnit.MILLISECONDS)) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, 503, "text/plain", "Server is busy");
+                return;
+            }
+            try {
+                String text = method.equals("POST") ? readBody(exchange, params) : null;
+                AnalysisResult result = text != null ? analyseText(text, params) : analyseFile(params);
+                String source = text != null ? "request" : params.get("path");
+                send(exchange, 200, "application/json", ResultWriter.toJson(source, result, topWords(params)));
+            } finally {
+                permits.release();
+            }
+        } catch (BodyTooLargeException e) {
+            send(exchange, 413, "text/plain", e.getMessage());
+        } catch (SecurityException e) {
+            send(exchange, 403, "text/plain", e.getMessage());
+        } catch (NoSuchFileException e) {
+            send(exchange, 404, "text/plain", "No such file " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, "text/plain", String.valueOf(e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            send(exchange, 503, "text/plain", "Server is stopping");
+        } catch (IOException | RuntimeException e) {
+            send(exchange, 500, "text/plain", String.valueOf(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private AnalysisResult analyseText(String text, Map<String, String> params) throws IOException {
+        Locale locale = locale(params);
+        if (locale == null) {
+            // Sample of text is its beginning, alphabets are shared by all requests
+            locale = LanguageDetector.detect(text.substring(0, Math.min(text.length(), 64 * 1024)));
+        }
+        return analyzer(locale != null ? locale : Locale.ENGLISH, params)
+                .analyse(TextSource.of(new StringReader(text)));
+    }
+
+    private AnalysisResult analyseFile(Map<String, String> params) throws IOException {
+        if (root == null) {
+            throw new SecurityException("Files aren't served, server is started without --root");
+        }
+        Path path = root.resolve(params.get("path")).normalize();
+        if (!path.startsWith(root)) {
+            throw new SecurityException("File must be under " + root);
+        }
+        String name = params.get("charset");
+        Charset charset = name == null || name.equalsIgnoreCase("auto") ? EncodingDetector.detect(path)
+                : charset(name);
+        Locale locale = locale(params);
+        if (locale == null) {
+            locale = LanguageDetector.detect(path, charset);
+        }
+        return analyzer(locale != null ? locale : Locale.ENGLISH, params).analyse(TextSource.of(path, charset));
+    }
+
+    /**
+     * Every request is counted on its own thread, concurrency comes from requests
+     *
+     * @return Analyzer of language and settings of request, it's built by the first request with them
+     */
+    private Analyzer analyzer(Locale locale, Map<String, String> params) throws IllegalArgumentException {
+        int numOfRange = numOfRange(params);
+        Ranges.Strategy strategy = Ranges.Strategy.EQUAL_WIDTH;
+        String name = params.get("strategy");
+        if (name != null) {
+            try {
+                strategy = Ranges.Strategy.valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown strategy " + name);
+            }
+        }
+        int wordMemory = params.containsKey("words") ? WordCounter.DEFAULT_MEMORY : -1;
+        Ranges.Strategy rangeStrategy = strategy;
+        // Unknown languages share the default alphabet, so requests can't fill the map
+        Locale language = Alphabet.forLocale(locale).getLocale();
+        return analyzers.computeIfAbsent(language + " " + numOfRange + " " + strategy + " " + wordMemory,
+                key -> Analyzer.builder(language)
+                        .numOfRange(numOfRange)
+                        .rangeStrategy(rangeStrategy)
+                        .wordMemory(wordMemory)
+                        .build());
+    }
+
+    /**
+     * @return Locale of parameter or {@code null} if language is detected
+     */
+    private static Locale locale(Map<String, String> params) {
+        String value = params.getOrDefault("locale", "auto");
+        return value.equalsIgnoreCase("auto") ? null : new Locale(value);
+    }
+
+    private static int topWords(Map<String, String> params) throws IllegalArgumentException {
+        String value = params.get("words");
+        return value == null ? ResultWriter.TOP_WORDS : positive("words", value);
+    }
+
+    private static int numOfRange(Map<String, String> params) throws IllegalArgumentException {
+        String value = params.get("ranges");
+        int numOfRange = value == null ? 5 : positive("ranges", value);
+        if (numOfRange > AnalystService.MAX_NUM_OF_RANGE) {
+            throw new IllegalArgumentException("ranges must be at most " + AnalystService.MAX_NUM_OF_RANGE);
+        }
+        return numOfRange;
+    }
+
+    private static Charset charset(String name) throws IllegalArgumentException {
+        try {
+            return Charset.forName(name);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown charset " + name);
+        }
+    }
+
+    private String readBody(HttpExchange exchange, Map<String, String> params) throws IOException {
+        String length = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (length != null && Long.parseLong(length) > maxBody) {
+            throw new BodyTooLargeException(maxBody);
+        }
+        String name = params.get("charset");
+        boolean detect = name != null && name.equalsIgnoreCase("auto");
+        Charset charset = name == null ? StandardCharsets.UTF_8 : detect ? null : charset(name);
+        ByteArrayOutputStream body = new ByteArrayOutputStream(length != null ? Integer.parseInt(length) : 8192);
+        byte[] buffer = new byte[8192];
+        try (InputStream in = exchange.getRequestBody()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                if (body.size() + read > maxBody) {
+                    throw new BodyTooLargeException(maxBody);
+                }
+                body.write(buffer, 0, read);
+            }
+        }
+        byte[] bytes = body.toByteArray();
+        return new String(bytes, detect ? EncodingDetector.detect(ByteBuffer.wrap(bytes)) : charset);
+    }
+
+    private static Map<String, String> params(String query) throws IOException {
+        Map<String, String> res = new HashMap<>();
+        if (query == null) {
+            return res;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                res.put(URLDecoder.decode(pair.substring(0, separator), "UTF-8"),
+                        URLDecoder.decode(pair.substring(separator + 1), "UTF-8"));
+            }
+        }
+        return res;
+    }
+
+    private static void send(HttpExchange exchange, int status, String type, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", type + "; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static class BodyTooLargeException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        BodyTooLargeException(int maxBody) {
+            super("Body must be at most " + maxBody + " bytes");
+        }
+    }
+}
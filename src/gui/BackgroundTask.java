@@ -0,0 +1,54 @@
+package gui;
+
+import javafx.concurrent.Task;
+import services.ProgressMonitor;
+
+import java.text.MessageFormat;
+import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Task which is its own {@link ProgressMonitor}.
+ * <p>
+ * Progress, throughput and estimated time are published at most {@link #FRAMES_PER_SECOND} times per
+ * second, so counting threads never flood the JavaFX application thread.
+ *
+ * @author tkaczenko
+ */
+abstract class BackgroundTask<V> extends Task<V> implements ProgressMonitor {
+    static final int FRAMES_PER_SECOND = 30;
+
+    private static final long FRAME = TimeUnit.SECONDS.toNanos(1) / FRAMES_PER_SECOND;
+    private static final double MEGABYTE = 1024 * 1024;
+
+    private final MessageFormat knownTotal;
+    private final MessageFormat unknownTotal;
+    private final long start = System.nanoTime();
+    private final AtomicLong lastUpdate = new AtomicLong(start - FRAME);
+
+    BackgroundTask(ResourceBundle bundle) {
+        this.knownTotal = new MessageFormat(bundle.getString("progress"), bundle.getLocale());
+        this.unknownTotal = new MessageFormat(bundle.getString("progress_unknown"), bundle.getLocale());
+    }
+
+    @Override
+    public void worked(long done, long total) {
+        long now = System.nanoTime();
+        long last = lastUpdate.get();
+        if (now - last < FRAME && done != total || !lastUpdate.compareAndSet(last, now)) {
+            return;
+        }
+        double seconds = Math.max(now - start, 1) / 1e9;
+        double throughput = done / seconds;
+        if (total < 0) {
+            updateProgress(-1, 1);
+            updateMessage(unknownTotal.format(new Object[]{done / MEGABYTE, throughput / MEGABYTE}));
+        } else {
+            double eta = throughput > 0 ? (total - done) / throughput : 0;
+            updateProgress(done, total);
+            updateMessage(knownTotal.format(
+                    new Object[]{done / MEGABYTE, total / MEGABYTE, throughput / MEGABYTE, eta}));
+        }
+    }
+}
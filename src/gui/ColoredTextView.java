@@ -0,0 +1,139 @@
+package gui;
+
+import javafx.collections.ObservableListBase;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextFlow;
+import services.Metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Virtualized view of text file with letters colored by their ranges.
+ * <p>
+ * Only visible rows are read from file and turned into nodes. Adjacent characters of the same range
+ * are shown by one {@link Text}.
+ *
+ * @author tkaczenko
+ * @see TextRows
+ */
+public class ColoredTextView extends ListView<Integer> {
+    private TextRows rows;
+
+    /**
+     * Range of every character, {@code -1} for characters without range
+     */
+    private byte[] rangeTable;
+
+    /**
+     * Color of every range
+     */
+    private Color[] colors;
+
+    public ColoredTextView() {
+        setCellFactory(listView -> new RowCell());
+    }
+
+    /**
+     * Show indexed file without colors
+     *
+     * @param rows Rows of file
+     * @throws IOException if previous file can't be closed
+     */
+    void show(TextRows rows) throws IOException {
+        close();
+        this.rows = rows;
+        this.rangeTable = null;
+        this.colors = null;
+        setItems(new RowList(rows.size()));
+    }
+
+    /**
+     * Color letters of shown file
+     *
+     * @param rangeTable Range of every character, {@code -1} for characters without range
+     * @param colors     Color of every range
+     */
+    public void setColors(byte[] rangeTable, Color[] colors) {
+        this.rangeTable = rangeTable;
+        this.colors = colors;
+        refresh();
+    }
+
+    /**
+     * Close shown file
+     *
+     * @throws IOException if file can't be closed
+     */
+    public void close() throws IOException {
+        if (rows != null) {
+            rows.close();
+            rows = null;
+            setItems(new RowList(0));
+        }
+    }
+
+    private class RowCell extends ListCell<Integer> {
+        @Override
+        protected void updateItem(Integer row, boolean empty) {
+            super.updateItem(row, empty);
+            if (empty || row == null || rows == null) {
+                setGraphic(null);
+                return;
+            }
+            long start = Metrics.start();
+            String text;
+            try {
+                text = rows.get(row);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            setGraphic(rangeTable == null ? new TextFlow(new Text(text)) : colorize(text));
+            Metrics.record(Metrics.Phase.RENDER, start);
+        }
+
+        private TextFlow colorize(String text) {
+            TextFlow flow = new TextFlow();
+            int start = 0;
+            while (start < text.length()) {
+                int range = rangeTable[text.charAt(start)];
+                int end = start + 1;
+                while (end < text.length() && rangeTable[text.charAt(end)] == range) {
+                    end++;
+                }
+                Text span = new Text(text.substring(start, end));
+                span.setFill(range < 0 ? Color.BLACK : colors[range]);
+                flow.getChildren().add(span);
+                start = end;
+            }
+            return flow;
+        }
+    }
+
+    /**
+     * Indexes of rows without storing them
+     */
+    private static class RowList extends ObservableListBase<Integer> {
+        private final int size;
+
+        RowList(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public Integer get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(Integer.toString(index));
+            }
+            return index;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
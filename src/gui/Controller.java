@@ -14,6 +14,9 @@ import javafx.scene.chart.NumberAxis;
 import javafx.scene.chart.XYChart;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.ScrollPane;
 import javafx.scene.control.TextField;
 import javafx.scene.layout.BorderPane;
@@ -23,47 +26,151 @@ import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Text;
 import javafx.scene.text.TextFlow;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import services.AnalystService;
+import services.ColoredExporter;
+import services.CorpusCounter;
+import services.EncodingDetector;
+import services.HistogramCache;
+import services.LanguageDetector;
+import services.Metrics;
+import services.NGramCounter;
+import services.NoLettersException;
+import services.Ranges;
+import services.TailFollower;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.MessageFormat;
 import java.util.*;
-import java.util.function.Function;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Controller for {@code analyser.fxml}
  *
  * @see AnalystService
+ * @see ColoredTextView
  * @see TextFlow
  * @see Text
  */
 public class Controller implements Initializable {
+    /**
+     * Maximum number of bars of histogram
+     */
+    private static final int MAX_CHART_ITEMS = 60;
+
+    /**
+     * Files of folder which are analysed
+     */
+    private static final String TEXT_FILES = "*.txt";
+
+    /**
+     * Number of text files of folder whose samples detect language of corpus
+     */
+    private static final int LANGUAGE_SAMPLE_FILES = 16;
+
+    /**
+     * Encodings which can be chosen instead of detected one
+     */
+    private static final Charset[] ENCODINGS = {StandardCharsets.UTF_8, EncodingDetector.WINDOWS_1251,
+            EncodingDetector.KOI8_U, StandardCharsets.UTF_16LE, StandardCharsets.UTF_16BE};
+
     @FXML
     private TextField file_path;
     @FXML
-    private TextFlow text_flow;
+    private ColoredTextView text_view;
     @FXML
     private NumberTextField edit_range;
+    @FXML
+    private NumberTextField edit_gram;
+    @FXML
+    private ComboBox<String> range_strategy;
+    @FXML
+    private ComboBox<String> encoding;
+    @FXML
+    private Button open_button;
+    @FXML
+    private Button open_folder_button;
+    @FXML
+    private Button analyse_button;
+    @FXML
+    private Button export_button;
+    @FXML
+    private Button cancel_button;
+    @FXML
+    private ProgressBar progress_bar;
+    @FXML
+    private Label status_label;
 
     private ResourceBundle bundle;
 
+    /**
+     * Thread for reading and analysis of files, so the application thread only renders
+     */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "analysis");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private BackgroundTask<?> task;
+
     private AnalystService analyst;
+    private TailFollower follower;
+    /**
+     * Whether language of followed file was detected, it's analysed in the interface language otherwise
+     */
+    private boolean languageDetected;
+
+    /**
+     * Histograms of analysed files, so reopened files aren't counted again
+     */
+    private HistogramCache cache;
     private File selectedFile;
-    private List<String> strings;
-    private Map<Integer, Color> colorMap;
+    /**
+     * Folder of corpus which is analysed instead of file
+     */
+    private File selectedDirectory;
+    private Charset charset = StandardCharsets.UTF_8;
+    private Color[] colors;
     private Map<Character, Integer> ranges;
 
     @Override
     public void initialize(URL location, ResourceBundle bundle) {
         this.bundle = bundle;
+        cancel_button.setDisable(true);
+        Metrics.register();
+        for (Ranges.Strategy strategy : Ranges.Strategy.values()) {
+            range_strategy.getItems().add(bundle.getString("strategy_" + strategy.name().toLowerCase(Locale.ROOT)));
+        }
+        range_strategy.setValue(range_strategy.getItems().get(0));
+        encoding.getItems().add(bundle.getString("encoding_auto"));
+        for (Charset charset : ENCODINGS) {
+            encoding.getItems().add(charset.name());
+        }
+        encoding.setValue(encoding.getItems().get(0));
+        try {
+            cache = HistogramCache.openDefault();
+        } catch (IOException e) {
+            // Files are counted every time without cache
+            cache = null;
+        }
     }
 
     @FXML
@@ -72,32 +179,149 @@ public class Controller implements Initializable {
         fileChooser.getExtensionFilters().addAll(
                 new FileChooser.ExtensionFilter(bundle.getString("text_files"), "*.txt")
         );
-        selectedFile = fileChooser.showOpenDialog(null);
-        if (selectedFile != null) {
+        File file = fileChooser.showOpenDialog(null);
+        if (file != null) {
+            selectedFile = file;
+            selectedDirectory = null;
+            follower = null;
             file_path.setText(selectedFile.getAbsolutePath());
             readFile();
         }
     }
 
+    @FXML
+    private void openFolder(ActionEvent event) {
+        File directory = new DirectoryChooser().showDialog(null);
+        if (directory != null) {
+            selectedDirectory = directory;
+            selectedFile = null;
+            follower = null;
+            file_path.setText(directory.getAbsolutePath());
+            try {
+                text_view.close();
+            } catch (IOException e) {
+                showReadError(e);
+            }
+        }
+    }
+
+    @FXML
+    private void changeEncoding(ActionEvent event) {
+        if (selectedFile != null) {
+            follower = null;
+            readFile();
+        }
+    }
+
     private void readFile() {
-        // Read file using NIO and stream of {@code String}
-        try (Stream<String> stream = Files.lines(Paths.get(selectedFile.getAbsolutePath()))) {
-            strings = stream.collect(Collectors.toList());
+        // Index rows of file, they are read only when they are shown
+        Path path = selectedFile.toPath();
+        int selected = encoding.getItems().indexOf(encoding.getValue());
+        Charset chosen = selected > 0 ? Charset.forName(encoding.getValue()) : null;
+        BackgroundTask<TextRows> task = new BackgroundTask<TextRows>(bundle) {
+            @Override
+            protected TextRows call() throws Exception {
+                long start = Metrics.start();
+                Charset detected = chosen != null ? chosen : EncodingDetector.detect(path);
+                TextRows rows = TextRows.index(path, detected, this);
+                Metrics.record(Metrics.Phase.READ, start);
+                return rows;
+            }
+        };
+        start(task, rows -> {
+            charset = rows.getCharset();
+            try {
+                text_view.show(rows);
+            } catch (IOException e) {
+                showReadError(e);
+            }
+        });
+    }
 
-            List<Text> texts = strings.parallelStream()
-                    .map(Text::new)
-                    .collect(Collectors.toList());
+    /**
+     * Run task in background and show its progress
+     *
+     * @param task      Task
+     * @param onSuccess Handler of result of task, it's called on application thread
+     */
+    private <V> void start(BackgroundTask<V> task, Consumer<V> onSuccess) {
+        if (this.task != null) {
+            return;
+        }
+        this.task = task;
+        progress_bar.progressProperty().bind(task.progressProperty());
+        status_label.textProperty().bind(task.messageProperty());
+        open_button.setDisable(true);
+        open_folder_button.setDisable(true);
+        analyse_button.setDisable(true);
+        export_button.setDisable(true);
+        cancel_button.setDisable(false);
+
+        task.setOnSucceeded(event -> {
+            finish();
+            onSuccess.accept(task.getValue());
+        });
+        task.setOnFailed(event -> {
+            finish();
+            follower = null;
+            showError(task.getException());
+        });
+        task.setOnCancelled(event -> {
+            finish();
+            follower = null;
+        });
+        executor.execute(task);
+    }
 
-            text_flow.getChildren().clear();
-            text_flow.getChildren().addAll(texts);
-        } catch (IOException e) {
+    private void finish() {
+        progress_bar.progressProperty().unbind();
+        status_label.textProperty().unbind();
+        progress_bar.setProgress(0);
+        status_label.setText("");
+        open_button.setDisable(false);
+        open_folder_button.setDisable(false);
+        analyse_button.setDisable(false);
+        export_button.setDisable(false);
+        cancel_button.setDisable(true);
+        task = null;
+    }
+
+    @FXML
+    private void cancel(ActionEvent event) {
+        if (task != null) {
+            task.cancel();
+        }
+    }
+
+    private void showError(Throwable e) {
+        if (e instanceof IOException) {
+            showReadError((IOException) e);
+        } else if (e instanceof NoLettersException) {
             Alert alert = new Alert(Alert.AlertType.ERROR);
-            alert.setHeaderText(bundle.getString("read_error"));
+            alert.setHeaderText(bundle.getString("language_error"));
+            alert.setContentText(MessageFormat.format(bundle.getString("no_letters"),
+                    ((NoLettersException) e).getLocale().getDisplayLanguage(bundle.getLocale())));
+            alert.showAndWait();
+        } else if (e instanceof IllegalArgumentException) {
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setHeaderText(bundle.getString("analysis_error"));
             alert.setContentText(e.getMessage());
             alert.showAndWait();
+        } else {
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setHeaderText(bundle.getString("read_error"));
+            alert.setContentText(String.valueOf(e));
+            alert.showAndWait();
         }
     }
 
+    private void showReadError(IOException e) {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setHeaderText(bundle.getString("read_error"));
+        alert.setContentText(e.getMessage());
+        alert.showAndWait();
+    }
+
     @FXML
     private void analyse(ActionEvent event) {
         // Get number of range for letter frequency
@@ -105,6 +329,13 @@ public class Controller implements Initializable {
         String editText = edit_range.getText();
         if (editText.trim().length() > 0) {
             numOfRange = Integer.parseInt(edit_range.getText());
+            if (numOfRange < 1 || numOfRange > AnalystService.MAX_NUM_OF_RANGE) {
+                Alert alert = new Alert(Alert.AlertType.ERROR);
+                alert.setHeaderText(bundle.getString("input_err"));
+                alert.setContentText(bundle.getString("numOfRange") + ": 1 - " + AnalystService.MAX_NUM_OF_RANGE);
+                alert.showAndWait();
+                return;
+            }
         } else {
             Alert alert = new Alert(Alert.AlertType.ERROR);
             alert.setHeaderText(bundle.getString("input_err"));
@@ -113,7 +344,7 @@ public class Controller implements Initializable {
             return;
         }
 
-        if (strings == null) {
+        if (selectedFile == null && selectedDirectory == null) {
             Alert alert = new Alert(Alert.AlertType.ERROR);
             alert.setHeaderText(bundle.getString("information"));
             alert.setContentText(bundle.getString("mess_analyse"));
@@ -121,39 +352,196 @@ public class Controller implements Initializable {
             return;
         }
 
-        analyst = new AnalystService(strings, numOfRange, bundle.getLocale());
+        // Get number of letters of n-gram, single letters are counted by default
+        int gramSize = 1;
+        String gramText = edit_gram.getText();
+        if (gramText != null && gramText.trim().length() > 0) {
+            gramSize = Integer.parseInt(gramText.trim());
+            if (gramSize < 1 || gramSize > NGramCounter.MAX_GRAM_SIZE) {
+                Alert alert = new Alert(Alert.AlertType.ERROR);
+                alert.setHeaderText(bundle.getString("input_err"));
+                alert.setContentText(bundle.getString("gramSize") + ": 1 - " + NGramCounter.MAX_GRAM_SIZE);
+                alert.showAndWait();
+                return;
+            }
+        }
 
-        try {
-            analyst.analyse();
+        Ranges.Strategy strategy = Ranges.Strategy.values()[Math.max(0,
+                range_strategy.getItems().indexOf(range_strategy.getValue()))];
+        if (selectedDirectory != null) {
+            analyseCorpus(numOfRange, strategy);
+            return;
+        }
 
-            colorMap = generateColorMap(numOfRange);
+        Path path = selectedFile.toPath();
+        if (follower != null && analyst.getGramSize() != gramSize) {
+            // N-grams of text counted before are unknown
+            follower = null;
+        }
+        if (follower == null) {
+            analyst = new AnalystService(path, charset, numOfRange, bundle.getLocale());
+            analyst.setParallelism(Runtime.getRuntime().availableProcessors());
+            analyst.setGramSize(gramSize);
+            analyst.setCache(cache);
+            analyst.setAutoLanguage(true);
+            follower = new TailFollower(analyst, path, charset);
+        }
+        analyst.setNumOfRange(numOfRange);
+        analyst.setRangeStrategy(strategy);
+
+        BackgroundTask<Boolean> task = new BackgroundTask<Boolean>(bundle) {
+            @Override
+            protected Boolean call() throws Exception {
+                // Language is detected from sample before the whole file is counted
+                Boolean detected = null;
+                if (follower.getPosition() == 0) {
+                    detected = analyst.detectLanguage() != null;
+                }
+                // Count only text appended since the previous analysis
+                follower.poll(this);
+                analyst.computeRanges();
+                return detected;
+            }
+        };
+        start(task, detected -> {
+            if (detected != null) {
+                languageDetected = detected;
+            }
+            colors = generateColors(numOfRange);
             ranges = analyst.getRanges();
 
             // Add color to letter on the assumption of range
-            List<Text> texts = strings.parallelStream()
-                    .map(s -> s.chars())
-                    .flatMap(intStream -> intStream.mapToObj(n -> (char) n))
-                    .map(character -> {
-                        String string = Character.toString(character);
-                        Text text = new Text(string);
-                        Character temp = Character.toUpperCase(character);
-                        if (ranges.containsKey(temp)) {
-                            text.setFill(colorMap.get(ranges.get(Character.toUpperCase(character))));
-                        } else {
-                            text.setFill(Color.BLACK);
-                        }
-                        return text;
-                    })
-                    .collect(Collectors.toList());
-
-            text_flow.getChildren().clear();
-            text_flow.getChildren().addAll(texts);
-        } catch (IllegalArgumentException e) {
-            Alert alert = new Alert(Alert.AlertType.ERROR);
-            alert.setHeaderText("Error of text language");
-            alert.setContentText(e.getMessage());
+            text_view.setColors(analyst.getRangeTable(), colors);
+            status_label.setText(MessageFormat.format(bundle.getString("language"),
+                    displayLanguage(analyst.getLocale(), languageDetected)));
+        });
+    }
+
+    /**
+     * Count letters of every text file of folder in parallel and split letters of the whole corpus into ranges.
+     * Language of corpus is detected from samples of its files, n-grams aren't counted.
+     */
+    private void analyseCorpus(int numOfRange, Ranges.Strategy strategy) {
+        Path directory = selectedDirectory.toPath();
+        int selected = encoding.getItems().indexOf(encoding.getValue());
+        Charset chosen = selected > 0 ? Charset.forName(encoding.getValue()) : null;
+        AtomicReference<CorpusCounter.Corpus> counted = new AtomicReference<>();
+        AtomicBoolean detected = new AtomicBoolean();
+        BackgroundTask<AnalystService> task = new BackgroundTask<AnalystService>(bundle) {
+            @Override
+            protected AnalystService call() throws Exception {
+                Locale locale = detectLanguage(directory, chosen);
+                detected.set(locale != null);
+                AnalystService corpusAnalyst = new AnalystService(Collections.<String>emptyList(), numOfRange,
+                        locale != null ? locale : bundle.getLocale());
+                corpusAnalyst.setRangeStrategy(strategy);
+                CorpusCounter counter = new CorpusCounter(Runtime.getRuntime().availableProcessors());
+                CorpusCounter.Corpus corpus = counter.count(directory, TEXT_FILES, chosen,
+                        corpusAnalyst.getAlphabet(), this);
+                // Ranges of corpus are computed from the sum of histograms of files
+                corpusAnalyst.add(corpus.getHistogram());
+                counted.set(corpus);
+                return corpusAnalyst;
+            }
+        };
+        start(task, result -> {
+            analyst = result;
+            colors = generateColors(numOfRange);
+            ranges = analyst.getRanges();
+            CorpusCounter.Corpus corpus = counted.get();
+            status_label.setText(MessageFormat.format(bundle.getString("corpus"), corpus.getFiles().size(),
+                    corpus.getErrors().size(), displayLanguage(analyst.getLocale(), detected.get())));
+        });
+    }
+
+    /**
+     * @param detected Whether language was detected, text of unknown language is analysed in the interface
+     *                 language
+     * @return Name of language of analysis in the interface language
+     */
+    private String displayLanguage(Locale locale, boolean detected) {
+        String name = locale.getDisplayLanguage(bundle.getLocale());
+        return detected ? name : MessageFormat.format(bundle.getString("unknown_language"), name);
+    }
+
+    /**
+     * Language is detected from the sum of samples of several text files, so an empty file or README doesn't
+     * decide it. Unreadable files and subdirectories are skipped like by {@link CorpusCounter}.
+     *
+     * @return Language of text files of folder or {@code null} if it's unknown
+     */
+    private static Locale detectLanguage(Path directory, Charset charset) throws IOException {
+        PathMatcher matcher = directory.getFileSystem().getPathMatcher("glob:" + TEXT_FILES);
+        StringBuilder sample = new StringBuilder();
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            private int files;
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (!attributes.isRegularFile() || !matcher.matches(file.getFileName())) {
+                    return FileVisitResult.CONTINUE;
+                }
+                try {
+                    sample.append(LanguageDetector.sample(file,
+                            charset != null ? charset : EncodingDetector.detect(file)));
+                } catch (IOException e) {
+                    // File is reported as error of corpus
+                    return FileVisitResult.CONTINUE;
+                }
+                return ++files < LANGUAGE_SAMPLE_FILES ? FileVisitResult.CONTINUE : FileVisitResult.TERMINATE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                if (file.equals(directory)) {
+                    throw e;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return LanguageDetector.detect(sample);
+    }
+
+    /**
+     * Export analysed file with colored letters to HTML page. File is streamed again, so nodes of the whole
+     * text aren't created.
+     */
+    @FXML
+    private void export(ActionEvent event) {
+        if (ranges == null || follower == null) {
+            Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.setHeaderText(bundle.getString("information"));
+            alert.setContentText(bundle.getString("mess_noanalyse"));
             alert.showAndWait();
+            return;
         }
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter(bundle.getString("html_files"),
+                "*.html"));
+        fileChooser.setInitialFileName(selectedFile.getName() + ".html");
+        File file = fileChooser.showSaveDialog(null);
+        if (file == null) {
+            return;
+        }
+
+        int[] rgb = new int[colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            Color color = colors[i];
+            rgb[i] = (int) Math.round(color.getRed() * 255) << 16 | (int) Math.round(color.getGreen() * 255) << 8
+                    | (int) Math.round(color.getBlue() * 255);
+        }
+        ColoredExporter exporter = new ColoredExporter(analyst.getRangeTable(), rgb, ColoredExporter.Format.HTML);
+        Path path = selectedFile.toPath();
+        Charset textCharset = charset;
+        BackgroundTask<Void> task = new BackgroundTask<Void>(bundle) {
+            @Override
+            protected Void call() throws Exception {
+                exporter.export(path, textCharset, file.toPath(), this);
+                return null;
+            }
+        };
+        start(task, result -> {
+        });
     }
 
     @FXML
@@ -166,6 +554,24 @@ public class Controller implements Initializable {
             return;
         }
 
+        long start = Metrics.start();
+
+        // Letters or n-grams with their ranges and frequencies
+        Map<String, Integer> itemRanges;
+        Map<String, Long> count;
+        if (analyst.getGramSize() > 1) {
+            itemRanges = analyst.getGramRanges();
+            count = analyst.getGramCount();
+        } else {
+            itemRanges = new HashMap<>();
+            count = new HashMap<>();
+            for (Map.Entry<Character, Integer> entry : ranges.entrySet()) {
+                itemRanges.put(entry.getKey().toString(), entry.getValue());
+                count.put(entry.getKey().toString(), analyst.getCharacterCount().get(entry.getKey()));
+            }
+        }
+        Set<Map.Entry<String, Integer>> items = itemRanges.entrySet();
+
         Stage stage = new Stage();
         BorderPane borderPane = new BorderPane();
         VBox vBox = new VBox();
@@ -183,33 +589,22 @@ public class Controller implements Initializable {
             xAxis.setLabel(bundle.getString("xAxis"));
             yAxis.setLabel(bundle.getString("yAxis"));
 
-            // Count letters of ranges
-            Map<Integer, Long> count = ranges.values().parallelStream()
-                    .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
-
-            // Sort the letters by max frequency
-            List<Character> characters = ranges.entrySet().parallelStream()
-                    .sorted(Map.Entry.<Character, Integer>comparingByValue())
-                    .map(entry -> entry.getKey())
-                    .collect(Collectors.toList());
-
-            // Create series for histogram that contain the number of range, letter and its frequency
-            Map<Character, Long> characterCount = analyst.getCharacterCount();
-            int start = 0;
-            int stop = 0;
-            List<XYChart.Series<String, Number>> seriesList = new ArrayList<XYChart.Series<String, Number>>();
-            for (Map.Entry<Integer, Long> entry : count.entrySet()) {
+            // Create series for histogram that contain the number of range, item and its frequency,
+            // only the most frequent items of every range are shown, so every range has its share of the chart
+            Map<Integer, List<String>> rangeItems = items.stream()
+                    .collect(Collectors.groupingBy(Map.Entry::getValue, TreeMap::new,
+                            Collectors.mapping(Map.Entry::getKey, Collectors.toList())));
+            int itemsOfRange = Math.max(1, MAX_CHART_ITEMS / Math.max(1, rangeItems.size()));
+            List<XYChart.Series<String, Number>> seriesList = new ArrayList<>();
+            rangeItems.forEach((range, keys) -> {
                 XYChart.Series<String, Number> series = new XYChart.Series<String, Number>();
-                series.setName(Integer.toString(entry.getKey()));
-                stop += entry.getValue().intValue();
-                for (int i = start; i < stop; i++) {
-                    Character character = characters.get(i);
-                    series.getData().add(
-                            new XYChart.Data<>(Character.toString(character), characterCount.get(character)));
-                    start++;
-                }
+                series.setName(Integer.toString(range));
+                keys.stream()
+                        .sorted(Comparator.comparing(key -> -count.get(key)))
+                        .limit(itemsOfRange)
+                        .forEach(key -> series.getData().add(new XYChart.Data<>(key, count.get(key))));
                 seriesList.add(series);
-            }
+            });
 
             ObservableList<XYChart.Series<String, Number>> list = FXCollections.observableArrayList(seriesList);
             histogram.setData(list);
@@ -226,21 +621,20 @@ public class Controller implements Initializable {
 
         scrollPane.setContent(textFlow);
 
-        // Add frequency and color to letter on the assumption of range
-        List<Text> texts = ranges.entrySet().parallelStream()
-                .sorted(Map.Entry.<Character, Integer>comparingByValue())
+        // Add frequency and color to letter or n-gram on the assumption of range
+        List<Text> texts = items.parallelStream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue())
                 .map(entry -> {
-                    String string = Character.toString(entry.getKey()) + " - " +
-                            analyst.getCharacterCount().get(entry.getKey());
+                    String string = entry.getKey() + " - " + count.get(entry.getKey());
                     Text text = new Text(string + "\n");
-                    text.setFill(colorMap.get(ranges.get(entry.getKey())));
+                    text.setFill(colors[entry.getValue()]);
                     return text;
                 })
                 .collect(Collectors.toList());
 
         textFlow.getChildren().addAll(texts);
 
-        hBox.setHgrow(button, Priority.ALWAYS);
+        HBox.setHgrow(button, Priority.ALWAYS);
         button.setMaxWidth(Double.MAX_VALUE);
         hBox.getChildren().add(button);
 
@@ -252,16 +646,17 @@ public class Controller implements Initializable {
         stage.setScene(new Scene(borderPane, 700, 500));
         stage.initModality(Modality.APPLICATION_MODAL);
         stage.show();
+        Metrics.record(Metrics.Phase.RENDER, start);
     }
 
     /**
      * Generate colors for range
      *
      * @param size size of range
-     * @return Map<Number of range, Its color>
+     * @return Color of every range
      */
-    private Map<Integer, Color> generateColorMap(int size) {
-        Map<Integer, Color> colorMap = new HashMap<>(size);
+    private Color[] generateColors(int size) {
+        Color[] colors = new Color[size];
         Random random = new Random(System.currentTimeMillis());
         for (int i = 0; i < size; i++) {
             Color color = generateColor(random);
@@ -269,9 +664,9 @@ public class Controller implements Initializable {
                     || color == Color.LIGHTGRAY || color == Color.DARKGRAY || color == Color.TRANSPARENT) {
                 color = generateColor(random);
             }
-            colorMap.put(i, color);
+            colors[i] = color;
         }
-        return colorMap;
+        return colors;
     }
 
     // Generate color using RGB
@@ -0,0 +1,163 @@
+package gui;
+
+import services.ProgressMonitor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Index of rows of text file, every row is read from file only when it's shown.
+ * <p>
+ * Row is a line or a part of long line of at most {@link #MAX_ROW_BYTES} bytes. Index keeps length of every
+ * row and offset of every {@link #CHECKPOINT}-th row, so it takes about two bytes per row.
+ *
+ * @author tkaczenko
+ */
+class TextRows implements Closeable {
+    static final int MAX_ROW_BYTES = 1024;
+
+    private static final int CHECKPOINT_SHIFT = 6;
+    private static final int CHECKPOINT = 1 << CHECKPOINT_SHIFT;
+
+    private final FileChannel channel;
+    private final Charset charset;
+
+    /**
+     * Number of bytes of code unit, newline is searched by code units
+     */
+    private final int unit;
+    private final ByteOrder order;
+
+    private char[] lengths = new char[1024];
+    private long[] checkpoints = new long[16];
+    private int size;
+
+    private TextRows(Path path, Charset charset) throws IOException {
+        if (charset.equals(StandardCharsets.UTF_16BE) || charset.equals(StandardCharsets.UTF_16LE)) {
+            unit = 2;
+        } else if (charset.equals(StandardCharsets.UTF_8) || charset.newEncoder().maxBytesPerChar() == 1.0f) {
+            unit = 1;
+        } else {
+            throw new IllegalArgumentException("Encoding " + charset.name() + " isn't supported.");
+        }
+        this.order = charset.equals(StandardCharsets.UTF_16LE) ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+        this.charset = charset;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+    /**
+     * Split file into rows
+     *
+     * @param path    File
+     * @param charset Encoding of file
+     * @param monitor Monitor of reading
+     * @return Index of rows, it keeps file open until it's closed
+     * @throws IOException if file can't be read
+     */
+    static TextRows index(Path path, Charset charset, ProgressMonitor monitor) throws IOException {
+        TextRows rows = new TextRows(path, charset);
+        try {
+            rows.scan(monitor);
+        } catch (IOException | RuntimeException e) {
+            rows.close();
+            throw e;
+        }
+        return rows;
+    }
+
+    private void scan(ProgressMonitor monitor) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024).order(order);
+        boolean utf8 = charset.equals(StandardCharsets.UTF_8);
+        long total = channel.size();
+        long offset = 0;
+        int length = 0;
+        while (channel.read(buffer) != -1) {
+            monitor.checkCancelled();
+            monitor.worked(channel.position(), total);
+            buffer.flip();
+            while (buffer.remaining() >= unit) {
+                int value = unit == 1 ? buffer.get() : buffer.getChar();
+                if (length + unit > MAX_ROW_BYTES && !(utf8 && (value & 0xC0) == 0x80)) {
+                    add(offset, length);
+                    offset += length;
+                    length = 0;
+                }
+                length += unit;
+                if (value == '\n') {
+                    add(offset, length);
+                    offset += length;
+                    length = 0;
+                }
+            }
+            buffer.compact();
+        }
+        length += buffer.position();
+        if (length > 0) {
+            add(offset, length);
+        }
+    }
+
+    private void add(long offset, int length) {
+        if ((size & (CHECKPOINT - 1)) == 0) {
+            int checkpoint = size >>> CHECKPOINT_SHIFT;
+            if (checkpoint == checkpoints.length) {
+                checkpoints = Arrays.copyOf(checkpoints, checkpoints.length * 2);
+            }
+            checkpoints[checkpoint] = offset;
+        }
+        if (size == lengths.length) {
+            lengths = Arrays.copyOf(lengths, lengths.length * 2);
+        }
+        lengths[size++] = (char) length;
+    }
+
+    Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * @return Number of rows
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Read row from file
+     *
+     * @param row Index of row
+     * @return Text of row without line separator
+     * @throws IOException if file can't be read
+     */
+    String get(int row) throws IOException {
+        long offset = checkpoints[row >>> CHECKPOINT_SHIFT];
+        for (int i = row & ~(CHECKPOINT - 1); i < row; i++) {
+            offset += lengths[i];
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(lengths[row]);
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, offset + bytes.position()) == -1) {
+                break;
+            }
+        }
+        String text = new String(bytes.array(), 0, bytes.position(), charset);
+        int end = text.length();
+        while (end > 0 && (text.charAt(end - 1) == '\n' || text.charAt(end - 1) == '\r')) {
+            end--;
+        }
+        return text.substring(0, end);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,120 @@
+package services;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precompiled letter table of a language.
+ * <p>
+ * Every {@code char} is mapped to the position of its upper-case letter in the alphabet, so both
+ * cases of a letter share one counter. Instances are immutable and shared between threads.
+ *
+ * @author tkaczenko
+ */
+public final class Alphabet {
+    public static final Alphabet ENGLISH = new Alphabet(Locale.ENGLISH,
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZ");
+    public static final Alphabet RUSSIAN = new Alphabet(new Locale("ru"),
+            "АБВГДЕЁЖЗИЙКЛМНОПРСТУФХЦЧШЩЪЫЬЭЮЯ");
+    public static final Alphabet UKRAINIAN = new Alphabet(new Locale("uk"),
+            "АБВГҐДЕЄЖЗИІЇЙКЛМНОПРСТУФХЦЧШЩЬЮЯ");
+
+    private final Locale locale;
+
+    /**
+     * Upper-case letters in alphabetical order
+     */
+    private final char[] letters;
+
+    /**
+     * Slot of every {@code char}: position of the letter plus one, or {@code 0} for any other character
+     */
+    private final byte[] slots;
+
+    /**
+     * Slots of bytes of single-byte encodings
+     */
+    private final Map<Charset, byte[]> byteSlots = new ConcurrentHashMap<>();
+
+    private Alphabet(Locale locale, String letters) {
+        this.locale = locale;
+        this.letters = letters.toCharArray();
+        this.slots = new byte[Character.MAX_VALUE + 1];
+        for (int i = 0; i < this.letters.length; i++) {
+            char upper = this.letters[i];
+            slots[upper] = (byte) (i + 1);
+            slots[Character.toLowerCase(upper)] = (byte) (i + 1);
+        }
+    }
+
+    /**
+     * Get alphabet of language
+     *
+     * @param locale Locale of text
+     * @return Alphabet of the locale's language, English for unknown languages
+     */
+    public static Alphabet forLocale(Locale locale) {
+        switch (locale.getLanguage()) {
+            case "ru":
+                return RUSSIAN;
+            case "uk":
+                return UKRAINIAN;
+            default:
+                return ENGLISH;
+        }
+    }
+
+    /**
+     * @param c Character
+     * @return Position of the letter in alphabet or {@code -1} if it isn't a letter of the alphabet
+     */
+    public int indexOf(char c) {
+        return slots[c] - 1;
+    }
+
+    /**
+     * @param index Position in alphabet
+     * @return Upper-case letter
+     */
+    public char letterAt(int index) {
+        return letters[index];
+    }
+
+    public int size() {
+        return letters.length;
+    }
+
+    public Locale getLocale() {
+        return locale;
+    }
+
+    /**
+     * Table for hot loops: {@code slots()[c] - 1} is {@link #indexOf(char)}. Must not be modified.
+     */
+    byte[] slots() {
+        return slots;
+    }
+
+    /**
+     * Table for counting bytes of single-byte encoding without decoding them: {@code byteSlots(charset)[b & 0xFF]}
+     * is slot of character encoded by byte {@code b}. Must not be modified.
+     *
+     * @param charset Encoding with one byte per character
+     */
+    byte[] byteSlots(Charset charset) {
+        return byteSlots.computeIfAbsent(charset, key -> {
+            byte[] res = new byte[256];
+            CharBuffer chars = CharBuffer.allocate(4);
+            for (int b = 0; b < res.length; b++) {
+                chars.clear();
+                ChunkedDecoder.newDecoder(key).decode(ByteBuffer.wrap(new byte[]{(byte) b}), chars, true);
+                res[b] = chars.position() == 1 ? slots[chars.get(0)] : 0;
+            }
+            return res;
+        });
+    }
+}
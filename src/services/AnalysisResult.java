@@ -0,0 +1,258 @@
+package services;
+
+import java.util.*;
+
+/**
+ * Letter frequencies and ranges of one analysis by {@link Analyzer}.
+ * <p>
+ * Result is immutable and may be read by several threads: histogram and frequencies of n-grams are copied when
+ * ranges are computed, counter of n-grams is used only for labels, which don't depend on counts, and counter
+ * of words isn't changed after result is built. {@link AnalystService} copies it before counting more words.
+ *
+ * @author tkaczenko
+ */
+public final class AnalysisResult {
+    private final Histogram histogram;
+    private final int numOfRange;
+    private final Ranges.Strategy strategy;
+
+    /**
+     * Ranges of letters or {@code null} if there are no letters
+     */
+    private final Ranges letterRanges;
+    private final Map<Character, Integer> ranges;
+
+    /**
+     * Range of every {@code char}, {@code -1} for characters which aren't letters of text
+     */
+    private final byte[] rangeTable;
+
+    /**
+     * Counter of n-grams for their labels, keys and frequencies of n-grams which occur in text and ranges
+     * of them, {@code null} if n-grams aren't counted
+     */
+    private final NGramCounter grams;
+    private final long[] gramKeys;
+    private final long[] gramFrequencies;
+    private final Ranges gramRanges;
+
+    private final WordCounter words;
+    private final ApproximateCounter.Estimate estimate;
+
+    AnalysisResult(Histogram histogram, int numOfRange, Ranges.Strategy strategy, NGramCounter grams,
+                   WordCounter words, ApproximateCounter.Estimate estimate) {
+        Alphabet alphabet = histogram.getAlphabet();
+        this.histogram = new Histogram(alphabet);
+        this.histogram.add(histogram);
+        this.numOfRange = numOfRange;
+        this.strategy = strategy;
+        this.grams = grams;
+        this.words = words;
+        this.estimate = estimate;
+
+        if (histogram.letters() == 0) {
+            letterRanges = null;
+            ranges = Collections.emptyMap();
+            rangeTable = null;
+            gramKeys = null;
+            gramFrequencies = null;
+            gramRanges = null;
+            return;
+        }
+        long[] frequencies = new long[alphabet.size()];
+        for (int index = 0; index < frequencies.length; index++) {
+            frequencies[index] = histogram.get(index);
+        }
+        letterRanges = Ranges.of(frequencies, numOfRange, strategy);
+        Map<Character, Integer> map = new HashMap<>();
+        for (int index = 0; index < frequencies.length; index++) {
+            if (letterRanges.get(index) >= 0) {
+                map.put(alphabet.letterAt(index), letterRanges.get(index));
+            }
+        }
+        ranges = Collections.unmodifiableMap(map);
+
+        // Both cases of letter share its range
+        byte[] slots = alphabet.slots();
+        byte[] table = new byte[slots.length];
+        for (int c = 0; c < slots.length; c++) {
+            table[c] = slots[c] == 0 ? -1 : (byte) letterRanges.get(slots[c] - 1);
+        }
+        rangeTable = table;
+
+        long[] keys = grams != null ? grams.keys() : new long[0];
+        if (keys.length == 0) {
+            gramKeys = null;
+            gramFrequencies = null;
+            gramRanges = null;
+            return;
+        }
+        long[] gramCounts = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            gramCounts[i] = grams.get(keys[i]);
+        }
+        gramKeys = keys;
+        gramFrequencies = gramCounts;
+        gramRanges = Ranges.of(gramCounts, numOfRange, strategy);
+    }
+
+    public Locale getLocale() {
+        return histogram.getAlphabet().getLocale();
+    }
+
+    public Alphabet getAlphabet() {
+        return histogram.getAlphabet();
+    }
+
+    /**
+     * @return Copy of counters of letters
+     */
+    public Histogram getHistogram() {
+        Histogram res = new Histogram(histogram.getAlphabet());
+        res.add(histogram);
+        return res;
+    }
+
+    /**
+     * @return Read-only view of letter and its frequency
+     */
+    public Map<Character, Long> getCharacterCount() {
+        return histogram.asMap();
+    }
+
+    /**
+     * @return Number of counted letters
+     */
+    public long letters() {
+        return histogram.letters();
+    }
+
+    /**
+     * @return Read-only map of letter and its range
+     */
+    public Map<Character, Integer> getRanges() {
+        return ranges;
+    }
+
+    /**
+     * @param c Character of any case
+     * @return Range of character or {@code -1} if it isn't a counted letter
+     */
+    public int getRange(char c) {
+        return rangeTable == null ? -1 : rangeTable[c];
+    }
+
+    /**
+     * Dense table for colouring text: {@code getRangeTable()[c]} is {@link #getRange(char)}. Table is shared,
+     * so it must not be modified.
+     *
+     * @return Range of every {@code char} or {@code null} if there are no letters
+     */
+    public byte[] getRangeTable() {
+        return rangeTable;
+    }
+
+    public int getNumOfRange() {
+        return numOfRange;
+    }
+
+    public Ranges.Strategy getRangeStrategy() {
+        return strategy;
+    }
+
+    public double getDelta() {
+        return letterRanges == null ? 0 : letterRanges.getDelta();
+    }
+
+    public Long getMaxFrequency() {
+        return letterRanges == null ? null : letterRanges.getMaxFrequency();
+    }
+
+    public Long getMinFrequency() {
+        return letterRanges == null ? null : letterRanges.getMinFrequency();
+    }
+
+    /**
+     * @return Map of n-gram and its frequency in order of n-grams or empty map if n-grams aren't counted
+     */
+    public Map<String, Long> getGramCount() {
+        Map<String, Long> res = new LinkedHashMap<>();
+        if (gramKeys != null) {
+            for (int i = 0; i < gramKeys.length; i++) {
+                res.put(grams.label(gramKeys[i]), gramFrequencies[i]);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * @return Map of n-gram and its range in order of n-grams or empty map if n-grams aren't counted
+     */
+    public Map<String, Integer> getGramRanges() {
+        Map<String, Integer> res = new LinkedHashMap<>();
+        if (gramKeys != null) {
+            for (int i = 0; i < gramKeys.length; i++) {
+                res.put(grams.label(gramKeys[i]), gramRanges.get(i));
+            }
+        }
+        return res;
+    }
+
+    /**
+     * @return Share of bytes of text which were read, less than {@code 1} if frequencies are estimated
+     */
+    public double getFractionRead() {
+        return estimate == null ? 1 : estimate.getFractionRead();
+    }
+
+    /**
+     * @return Half-width of 95% confidence interval of frequency of every letter or empty map if letters are
+     * counted exactly
+     */
+    public Map<Character, Long> getErrorBounds() {
+        Map<Character, Long> res = new LinkedHashMap<>();
+        if (estimate != null) {
+            Alphabet alphabet = histogram.getAlphabet();
+            for (int i = 0; i < alphabet.size(); i++) {
+                if (histogram.get(i) != 0) {
+                    res.put(alphabet.letterAt(i), estimate.getError(i));
+                }
+            }
+        }
+        return res;
+    }
+
+    NGramCounter grams() {
+        return grams;
+    }
+
+    WordCounter words() {
+        return words;
+    }
+
+    ApproximateCounter.Estimate estimate() {
+        return estimate;
+    }
+
+    /**
+     * @return Whether words are counted
+     */
+    public boolean hasWords() {
+        return words != null;
+    }
+
+    /**
+     * @return Number of counted words, {@code 0} if words aren't counted
+     */
+    public long getWordTotal() {
+        return words == null ? 0 : words.total();
+    }
+
+    /**
+     * @param k Number of words
+     * @return At most {@code k} most frequent words in descending order of frequency
+     */
+    public List<WordCounter.Word> getTopWords(int k) {
+        return words == null ? Collections.<WordCounter.Word>emptyList() : words.top(k);
+    }
+}
@@ -1,172 +1,499 @@
 package services;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.concurrent.CancellationException;
 
 /**
- * Service for calculating letter frequency in {@code List<String>}
+ * Service for calculating letter frequency in text read from {@link TextSource}.
+ * <p>
+ * Service is a mutable facade of {@link Analyzer}: setters change settings, analyzer of them is built when text
+ * is analysed, and the last {@link AnalysisResult} is kept with counters which are updated by added text.
+ * Service isn't thread-safe, concurrent analyses share one analyzer instead.
  *
  * @author tkaczenko
  */
 public class AnalystService {
-    private Locale locale;
     /**
-     * Text for calculating
+     * Maximum number of ranges, range of character is kept in {@code byte}
      */
-    private List<String> strings;
+    public static final int MAX_NUM_OF_RANGE = Byte.MAX_VALUE + 1;
+
+    private Locale locale;
 
     /**
-     * Map of letter and its frequency
+     * Whether language is detected from sample of text before counting
      */
-    private Map<Character, Long> characterCount;
+    private boolean autoLanguage;
+    /**
+     * Text for calculating
+     */
+    private TextSource source;
 
     /**
-     * Map of letter and its range
+     * Counters of letters
      */
-    private Map<Character, Integer> ranges;
+    private Histogram histogram;
 
     /**
      * Number of letter's range
      */
     private int numOfRange;
+    private Ranges.Strategy strategy = Ranges.Strategy.EQUAL_WIDTH;
 
-    private double delta;
-    private Long maxFrequency;
-    private Long minFrequency;
+    /**
+     * Number of threads counting a file
+     */
+    private int parallelism = 1;
 
-    public AnalystService(List<String> strings, int numOfRange, Locale locale) {
-        setStrings(strings);
+    /**
+     * Maximum error of estimated letter shares, {@code 0} if letters are counted exactly
+     */
+    private double tolerance;
+
+    /**
+     * Estimate of the last approximate analysis or {@code null}
+     */
+    private ApproximateCounter.Estimate estimate;
+
+    /**
+     * Cache of file histograms or {@code null}
+     */
+    private HistogramCache cache;
+
+    /**
+     * Number of letters of counted n-grams, single letters only are counted if it's {@code 1}
+     */
+    private int gramSize = 1;
+
+    /**
+     * Counters of n-grams
+     */
+    private NGramCounter grams;
+
+    /**
+     * Bytes of word counter, {@code 0} if words are counted exactly and {@code -1} if they aren't counted
+     */
+    private int wordMemory = -1;
+
+    /**
+     * Counters of words
+     */
+    private WordCounter words;
+
+    /**
+     * Analyzer of current settings, {@code null} after they are changed
+     */
+    private Analyzer analyzer;
+
+    /**
+     * Ranges of the last calculation or {@code null} if they aren't calculated
+     */
+    private AnalysisResult result;
+
+    public AnalystService(TextSource source, int numOfRange, Locale locale) {
+        setSource(source);
         setNumOfRange(numOfRange);
         setLocale(locale);
     }
 
-    public void analyse() throws IllegalArgumentException {
-        List<String> words = splitWords();
-        countLetters(words);
+    public AnalystService(List<String> strings, int numOfRange, Locale locale) {
+        this(TextSource.of(strings), numOfRange, locale);
+    }
 
-        Map.Entry<Character, Long> maxEntry = max();
-        Map.Entry<Character, Long> minEntry = min();
+    public AnalystService(Path path, Charset charset, int numOfRange, Locale locale) {
+        this(TextSource.of(path, charset), numOfRange, locale);
+    }
 
-        if (maxEntry == null || minEntry == null) {
-            throw new IllegalArgumentException("Language must equal language of user interface.");
-        }
+    public AnalystService(Reader reader, int numOfRange, Locale locale) {
+        this(TextSource.of(reader), numOfRange, locale);
+    }
 
-        maxFrequency = max().getValue();
-        minFrequency = min().getValue();
-        delta = (maxFrequency - minFrequency) / numOfRange;
+    public void analyse() throws IOException, IllegalArgumentException {
+        analyse(ProgressMonitor.NONE);
+    }
 
-        List<Map.Entry<Character, Long>> entries = characterCount.entrySet().parallelStream()
-                .sorted(Map.Entry.<Character, Long>comparingByValue().reversed())
-                .collect(Collectors.toList());
+    /**
+     * Analyse text reporting progress of counting. Language of file is checked or detected on its sample
+     * before counting.
+     *
+     * @param monitor Monitor of counting, it's called from counting threads
+     * @throws NoLettersException if there are no letters of the language
+     * @throws CancellationException    if monitor cancels analysis
+     */
+    public void analyse(ProgressMonitor monitor) throws IOException, IllegalArgumentException {
+        if (autoLanguage) {
+            detectLanguage();
+        }
+        estimate = null;
+        AnalysisResult res = analyzer().analyse(source, monitor, !autoLanguage);
+        histogram = res.getHistogram();
+        grams = res.grams();
+        words = res.words();
+        estimate = res.estimate();
+        result = res;
+    }
 
-        ranges = new HashMap<>();
-        for (Map.Entry<Character, Long> entry : entries) {
-            for (int i = 0; i < numOfRange; i++) {
-                if (entry.getValue() >= minFrequency + (numOfRange - 1 - i) * delta &&
-                        entry.getValue() <= maxFrequency - i * delta) {
-                    ranges.put(entry.getKey(), i);
-                    break;
-                }
-            }
+    /**
+     * Detect language of file from its sample and switch to it
+     *
+     * @return Locale of detected language or {@code null} if it's unknown or text isn't a file
+     * @throws IOException if file can't be read
+     */
+    public Locale detectLanguage() throws IOException {
+        if (!(source instanceof FileSource)) {
+            return null;
+        }
+        FileSource file = (FileSource) source;
+        Locale detected = LanguageDetector.detect(file.getPath(), file.getCharset());
+        if (detected != null) {
+            setLocale(detected);
         }
+        return detected;
     }
 
     /**
-     * Split words
+     * Count letters of text added to analysed one and update ranges
      *
-     * @return List of words
+     * @param text Added text
      */
-    private List<String> splitWords() {
-        return strings.parallelStream()
-                .flatMap(line -> Arrays.stream(line.trim().split("\\s")))
-                .map(word -> word.replaceAll(getLanguageRelatedCharacterRanges(), "").toUpperCase().trim())
-                .filter(word -> word.length() > 0)
-                .collect(Collectors.toList());
+    public void add(CharSequence text) {
+        histogram().count(text);
+        if (gramSize > 1) {
+            getGrams().count(text);
+        }
+        if (wordMemory >= 0) {
+            // Words of the last result don't change, they are copied before counting
+            WordCounter counter = getWords();
+            if (result != null && result.words() == counter) {
+                counter = counter.copy();
+                words = counter;
+            }
+            counter.count(text);
+            words.endWord();
+        }
+        updateRanges();
     }
 
     /**
-     * Calculate frequencies of all letters
+     * Add letters counted in other histogram and update ranges. N-grams of added text must be counted by
+     * {@link #getGrams()} before.
      *
-     * @param words List of words
+     * @param delta Histogram of added text
      */
-    private void countLetters(List<String> words) {
-        characterCount = words.parallelStream()
-                .map(s -> s.chars())
-                .flatMap(intStream -> intStream.mapToObj(n -> (char) n))
-                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+    public void add(Histogram delta) {
+        histogram().add(delta);
+        updateRanges();
     }
 
     /**
-     * Calculate maximum frequency of letters
+     * Subtract letters of text removed from analysed one and update ranges
      *
-     * @return Entry of letter and its frequency
+     * @param text Removed text
+     * @throws IllegalArgumentException if text wasn't counted before
+     * @throws IllegalStateException    if n-grams are counted
+     */
+    public void remove(CharSequence text) throws IllegalArgumentException, IllegalStateException {
+        if (gramSize > 1) {
+            throw new IllegalStateException("N-grams of removed text can't be subtracted.");
+        }
+        if (wordMemory >= 0) {
+            throw new IllegalStateException("Words of removed text can't be subtracted.");
+        }
+        histogram().remove(text);
+        updateRanges();
+    }
+
+    /**
+     * Forget all counted letters
      */
-    private Map.Entry<Character, Long> min() {
-        Optional<Map.Entry<Character, Long>> optional = characterCount.entrySet().parallelStream()
-                .min((e1, e2) -> Long.compare(e1.getValue(), e2.getValue()));
-        return optional.isPresent() ? optional.get() : null;
+    public void clear() {
+        histogram().clear();
+        estimate = null;
+        if (grams != null) {
+            grams.clear();
+        }
+        // Counter of words may be read by the last result, new one is created
+        words = null;
+        updateRanges();
     }
 
     /**
-     * Calcualte minimum frequency of letters
+     * Calculate frequency bounds and ranges of letters and n-grams from counted ones only
      *
-     * @return Entry of letter and its frequency
+     * @throws NoLettersException if there are no letters of the language
      */
-    private Map.Entry<Character, Long> max() {
-        Optional<Map.Entry<Character, Long>> optional = characterCount.entrySet().parallelStream()
-                .max((e1, e2) -> Long.compare(e1.getValue(), e2.getValue()));
-        return optional.isPresent() ? optional.get() : null;
+    public void computeRanges() throws IllegalArgumentException {
+        if (histogram().letters() == 0) {
+            throw new NoLettersException(getLocale());
+        }
+        updateRanges();
+    }
+
+    private void updateRanges() {
+        result = analyzer().result(histogram(), getGrams(), wordMemory >= 0 ? getWords() : null, estimate);
+    }
+
+    private Histogram histogram() {
+        if (histogram == null) {
+            histogram = new Histogram(getAlphabet());
+        }
+        return histogram;
     }
 
-    private String getLanguageRelatedCharacterRanges() {
-        String res;
-        switch (locale.getLanguage()) {
-            case "en":
-                res = "[^а-zA-Z]";
-                break;
-            case "ru":
-                res = "[^а-яА-ЯёЁ]";
-                break;
-            case "uk":
-                res = "[^а-щА-ЩЬьЮюЯяЇїІіЄєҐґ]";
-                break;
-            default:
-                res = "[^a-zA-Z]";
-                break;
+    private Analyzer analyzer() {
+        if (analyzer == null) {
+            analyzer = Analyzer.builder(locale)
+                    .numOfRange(numOfRange)
+                    .rangeStrategy(strategy)
+                    .gramSize(gramSize)
+                    .wordMemory(wordMemory)
+                    .parallelism(parallelism)
+                    .tolerance(tolerance)
+                    .cache(cache)
+                    .build();
         }
-        return res;
+        return analyzer;
+    }
+
+    /**
+     * @return Result of the last calculation of ranges or {@code null} if ranges aren't calculated
+     */
+    AnalysisResult result() {
+        return result;
     }
 
     public void setStrings(List<String> strings) {
-        this.strings = strings;
+        setSource(TextSource.of(strings));
     }
 
+    public void setSource(TextSource source) {
+        this.source = source;
+    }
+
+    /**
+     * @param numOfRange Number of ranges from {@code 1} to {@link #MAX_NUM_OF_RANGE}
+     */
     public void setNumOfRange(int numOfRange) {
+        if (numOfRange < 1 || numOfRange > MAX_NUM_OF_RANGE) {
+            throw new IllegalArgumentException("Number of ranges must be from 1 to " + MAX_NUM_OF_RANGE + ".");
+        }
         this.numOfRange = numOfRange;
+        analyzer = null;
+    }
+
+    public void setRangeStrategy(Ranges.Strategy strategy) {
+        this.strategy = strategy;
+        analyzer = null;
+    }
+
+    /**
+     * Estimate frequencies of large files from random blocks instead of counting them. Reading stops when
+     * order and ranges of letters are stable and confidence intervals are narrower than tolerance.
+     *
+     * @param tolerance Maximum half-width of 95% confidence interval of letter share, e.g. {@code 0.001},
+     *                  or {@code 0} to count letters exactly
+     */
+    public void setTolerance(double tolerance) {
+        if (!(tolerance >= 0 && tolerance < 1)) {
+            throw new IllegalArgumentException("Tolerance must be from 0 to 1.");
+        }
+        this.tolerance = tolerance;
+        analyzer = null;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * @return Share of bytes of text which were read by the last analysis
+     */
+    public double getFractionRead() {
+        return result == null ? 1 : result.getFractionRead();
+    }
+
+    /**
+     * @return Half-width of 95% confidence interval of frequency of every letter or empty map if letters are
+     * counted exactly
+     */
+    public Map<Character, Long> getErrorBounds() {
+        return result == null ? new LinkedHashMap<>() : result.getErrorBounds();
+    }
+
+    /**
+     * @param autoLanguage Whether {@link #analyse()} detects language of file instead of using locale
+     */
+    public void setAutoLanguage(boolean autoLanguage) {
+        this.autoLanguage = autoLanguage;
+    }
+
+    public boolean isAutoLanguage() {
+        return autoLanguage;
+    }
+
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive.");
+        }
+        this.parallelism = parallelism;
+        analyzer = null;
+    }
+
+    /**
+     * @param gramSize Number of letters of counted n-grams, {@code 1} counts single letters only
+     */
+    public void setGramSize(int gramSize) {
+        if (gramSize < 1 || gramSize > NGramCounter.MAX_GRAM_SIZE) {
+            throw new IllegalArgumentException("Size of n-gram must be from 1 to " + NGramCounter.MAX_GRAM_SIZE + ".");
+        }
+        if (gramSize != this.gramSize) {
+            this.gramSize = gramSize;
+            grams = null;
+            analyzer = null;
+            if (result != null) {
+                updateRanges();
+            }
+        }
     }
 
     public void setLocale(Locale locale) {
         this.locale = locale;
+        analyzer = null;
+        if (histogram != null && histogram.getAlphabet() != getAlphabet()) {
+            histogram = null;
+            grams = null;
+            words = null;
+        }
+    }
+
+    public Locale getLocale() {
+        return locale;
+    }
+
+    public Alphabet getAlphabet() {
+        return Alphabet.forLocale(locale);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @param cache Cache of file histograms or {@code null} to count files every time
+     */
+    public void setCache(HistogramCache cache) {
+        this.cache = cache;
+        analyzer = null;
+    }
+
+    public HistogramCache getCache() {
+        return cache;
     }
 
+    /**
+     * @param wordMemory Bytes of sketch of word frequencies, {@code 0} to count words exactly and {@code -1}
+     *                   to count letters only
+     */
+    public void setWordMemory(int wordMemory) {
+        if (wordMemory < -1) {
+            throw new IllegalArgumentException("Memory of word counter must be -1, 0 or positive.");
+        }
+        if (wordMemory != this.wordMemory) {
+            this.wordMemory = wordMemory;
+            words = null;
+            analyzer = null;
+        }
+    }
+
+    public int getWordMemory() {
+        return wordMemory;
+    }
+
+    /**
+     * @return Counters of words or {@code null} if words aren't counted. They are read by the last result, so
+     * words are added by {@link #add(CharSequence)} only.
+     */
+    public WordCounter getWords() {
+        if (words == null) {
+            words = analyzer().newWordCounter();
+        }
+        return words;
+    }
+
+    public int getGramSize() {
+        return gramSize;
+    }
+
+    /**
+     * @return Counters of n-grams or {@code null} if single letters only are counted
+     */
+    public NGramCounter getGrams() {
+        if (grams == null && gramSize > 1) {
+            grams = new NGramCounter(getAlphabet(), gramSize);
+        }
+        return grams;
+    }
+
+    /**
+     * @return Map of n-gram and its frequency in order of n-grams or empty map if n-grams aren't counted
+     */
+    public Map<String, Long> getGramCount() {
+        return result == null ? new LinkedHashMap<>() : result.getGramCount();
+    }
+
+    /**
+     * @return Map of n-gram and its range in order of n-grams or empty map if n-grams aren't counted
+     */
+    public Map<String, Integer> getGramRanges() {
+        return result == null ? new LinkedHashMap<>() : result.getGramRanges();
+    }
+
+    public Ranges.Strategy getRangeStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Dense table for colouring text: {@code getRangeTable()[c]} is range of character {@code c} of any case
+     * or {@code -1} if it isn't a counted letter. Table is replaced by every calculation of ranges, so it
+     * must not be modified.
+     *
+     * @return Range of every {@code char} or {@code null} if ranges aren't calculated
+     */
+    public byte[] getRangeTable() {
+        return result == null ? null : result.getRangeTable();
+    }
+
+    /**
+     * @return Read-only map of letter and its range or {@code null} if ranges aren't calculated
+     */
     public Map<Character, Integer> getRanges() {
-        return ranges;
+        return result == null ? null : result.getRanges();
     }
 
+    /**
+     * @return Read-only view of letter and its frequency
+     */
     public Map<Character, Long> getCharacterCount() {
-        return characterCount;
+        return histogram.asMap();
+    }
+
+    public Histogram getHistogram() {
+        return histogram;
     }
 
     public double getDelta() {
-        return delta;
+        return result == null ? 0 : result.getDelta();
     }
 
     public Long getMaxFrequency() {
-        return maxFrequency;
+        return result == null ? null : result.getMaxFrequency();
     }
 
     public Long getMinFrequency() {
-        return minFrequency;
+        return result == null ? null : result.getMinFrequency();
     }
 }
@@ -0,0 +1,369 @@
+package services;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Analysis of letter frequencies with fixed settings.
+ * <p>
+ * Analyzer is built once per language and settings and is immutable, so one analyzer serves any number of
+ * concurrent analyses without synchronization. Tables of alphabet are compiled once by {@link Alphabet}, every
+ * analysis counts into its own counters and returns them in an immutable {@link AnalysisResult}.
+ *
+ * @author tkaczenko
+ */
+public final class Analyzer {
+    /**
+     * Seed of order of sampled blocks, so approximate analysis of the same file gives the same result
+     */
+    private static final long SEED = 0x5EED;
+
+    private final Alphabet alphabet;
+    private final int numOfRange;
+    private final Ranges.Strategy strategy;
+    private final int gramSize;
+    private final int wordMemory;
+    private final int parallelism;
+    private final ForkJoinPool pool;
+    private final double tolerance;
+    private final HistogramCache cache;
+
+    private Analyzer(Builder builder) {
+        this.alphabet = Alphabet.forLocale(builder.locale);
+        this.numOfRange = builder.numOfRange;
+        this.strategy = builder.strategy;
+        this.gramSize = builder.gramSize;
+        this.wordMemory = builder.wordMemory;
+        this.parallelism = builder.parallelism;
+        this.pool = builder.pool;
+        this.tolerance = builder.tolerance;
+        this.cache = builder.cache;
+    }
+
+    /**
+     * @param locale Language of analysed texts
+     * @return Builder of analyzer with {@code 5} ranges of equal width which counts single letters exactly in
+     * one thread
+     */
+    public static Builder builder(Locale locale) {
+        return new Builder(locale);
+    }
+
+    /**
+     * Analyse text. Language of file is checked on its sample before counting.
+     *
+     * @param source  Text
+     * @param monitor Monitor of counting, it's called from counting threads
+     * @return Frequencies and ranges of text
+     * @throws IOException              if text can't be read
+     * @throws NoLettersException if there are no letters of the language
+     * @throws CancellationException    if monitor cancels analysis
+     */
+    public AnalysisResult analyse(TextSource source, ProgressMonitor monitor) throws IOException,
+            IllegalArgumentException {
+        return analyse(source, monitor, true);
+    }
+
+    public AnalysisResult analyse(TextSource source) throws IOException, IllegalArgumentException {
+        return analyse(source, ProgressMonitor.NONE);
+    }
+
+    /**
+     * @param checkLanguage Whether sample of file is checked, it's skipped if language is detected from it
+     */
+    AnalysisResult analyse(TextSource source, ProgressMonitor monitor, boolean checkLanguage) throws IOException,
+            IllegalArgumentException {
+        if (checkLanguage) {
+            checkLanguage(source);
+        }
+        long start = Metrics.start();
+        Counters counters = new Counters();
+        long bytes = count(source, counters, monitor);
+        if (bytes >= 0) {
+            Metrics.record(Metrics.Phase.COUNT, start);
+            Metrics.processed(bytes, counters.histogram.characters());
+        }
+        if (counters.histogram.letters() == 0) {
+            throw new NoLettersException(alphabet.getLocale());
+        }
+        return result(counters.histogram, counters.grams, counters.words, counters.estimate);
+    }
+
+    /**
+     * Split letters counted before into ranges, for example of merged histograms of files
+     *
+     * @param histogram Histogram of alphabet of analyzer, it's copied
+     * @return Frequencies and ranges of histogram, without ranges if it has no letters
+     */
+    public AnalysisResult result(Histogram histogram) {
+        return result(histogram, null, null, null);
+    }
+
+    /**
+     * Split counters into ranges. Histogram is copied, counters of n-grams and words are read by result.
+     */
+    AnalysisResult result(Histogram histogram, NGramCounter grams, WordCounter words,
+                          ApproximateCounter.Estimate estimate) {
+        if (histogram.getAlphabet() != alphabet) {
+            throw new IllegalArgumentException("Histogram must have alphabet of analyzer.");
+        }
+        long start = Metrics.start();
+        AnalysisResult res = new AnalysisResult(histogram, numOfRange, strategy, gramSize > 1 ? grams : null,
+                words, estimate);
+        Metrics.record(Metrics.Phase.BUCKET, start);
+        return res;
+    }
+
+    /**
+     * Fail before counting if sample of file has letters of another language
+     */
+    private void checkLanguage(TextSource source) throws IOException, IllegalArgumentException {
+        if (!(source instanceof FileSource)) {
+            return;
+        }
+        FileSource file = (FileSource) source;
+        CharSequence sample = LanguageDetector.sample(file.getPath(), file.getCharset());
+        Map<Locale, Double> scores = LanguageDetector.score(sample);
+        double best = Collections.max(scores.values());
+        if (best >= LanguageDetector.MIN_SCORE && scores.get(alphabet.getLocale()) < LanguageDetector.MIN_SCORE) {
+            throw new NoLettersException(alphabet.getLocale());
+        }
+    }
+
+    /**
+     * Calculate frequencies of all letters, n-grams and words in one pass over the text.
+     * Files are counted by parts in parallel if parallelism is greater than one and neither n-grams nor words
+     * are counted.
+     * Histograms of files are taken from cache if it's set. Frequencies of files are estimated from sample if
+     * tolerance is set.
+     *
+     * @return Number of counted bytes, {@code 0} if text isn't read from bytes and {@code -1} if histogram is
+     * taken from cache
+     */
+    private long count(TextSource source, Counters counters, ProgressMonitor monitor) throws IOException {
+        if (gramSize > 1 || wordMemory >= 0) {
+            Histogram histogram = new Histogram(alphabet);
+            NGramCounter grams = gramSize > 1 ? new NGramCounter(alphabet, gramSize) : null;
+            WordCounter words = newWordCounter();
+            source.read(chunk -> {
+                histogram.count(chunk);
+                if (grams != null) {
+                    grams.count(chunk);
+                }
+                if (words != null) {
+                    words.count(chunk);
+                }
+            }, monitor);
+            if (words != null) {
+                words.endWord();
+            }
+            counters.histogram = histogram;
+            counters.grams = grams;
+            counters.words = words;
+            Metrics.parallelism(1);
+            return source instanceof FileSource ? Files.size(((FileSource) source).getPath()) : 0;
+        }
+        if (source instanceof FileSource) {
+            FileSource file = (FileSource) source;
+            if (cache != null) {
+                Histogram cached = cache.get(file.getPath(), file.getCharset(), alphabet);
+                if (cached != null) {
+                    counters.histogram = cached;
+                    return -1;
+                }
+            }
+            if (tolerance > 0 && ParallelCounter.isSplittable(file.getCharset())) {
+                ApproximateCounter counter = new ApproximateCounter(tolerance, numOfRange, strategy, SEED);
+                counters.estimate = counter.count(file.getPath(), file.getCharset(), alphabet, monitor);
+                counters.histogram = counters.estimate.getHistogram();
+                Metrics.parallelism(1);
+                return Math.round(counters.estimate.getFractionRead() * Files.size(file.getPath()));
+            }
+            long size = Files.size(file.getPath());
+            if (pool != null || parallelism > 1) {
+                try (ParallelCounter counter = pool != null ? new ParallelCounter(pool)
+                        : new ParallelCounter(parallelism)) {
+                    counters.histogram = counter.count(file.getPath(), file.getCharset(), alphabet, monitor);
+                }
+            } else {
+                Histogram histogram = new Histogram(alphabet);
+                file.count(histogram, monitor);
+                counters.histogram = histogram;
+                Metrics.parallelism(1);
+            }
+            if (cache != null) {
+                cache.put(file.getPath(), file.getCharset(), size, counters.histogram);
+            }
+            return size;
+        }
+        Histogram histogram = new Histogram(alphabet);
+        source.read(histogram::count, monitor);
+        counters.histogram = histogram;
+        Metrics.parallelism(1);
+        return 0;
+    }
+
+    /**
+     * @return New counter of words or {@code null} if words aren't counted
+     */
+    WordCounter newWordCounter() {
+        if (wordMemory < 0) {
+            return null;
+        }
+        return wordMemory == 0 ? WordCounter.exact(alphabet) : WordCounter.sketch(alphabet, wordMemory);
+    }
+
+    public Locale getLocale() {
+        return alphabet.getLocale();
+    }
+
+    public Alphabet getAlphabet() {
+        return alphabet;
+    }
+
+    public int getNumOfRange() {
+        return numOfRange;
+    }
+
+    public Ranges.Strategy getRangeStrategy() {
+        return strategy;
+    }
+
+    public int getGramSize() {
+        return gramSize;
+    }
+
+    public int getWordMemory() {
+        return wordMemory;
+    }
+
+    public int getParallelism() {
+        return pool != null ? pool.getParallelism() : parallelism;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    public HistogramCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Counters of one analysis
+     */
+    private static class Counters {
+        private Histogram histogram;
+        private NGramCounter grams;
+        private WordCounter words;
+        private ApproximateCounter.Estimate estimate;
+    }
+
+    /**
+     * Settings of analyzer
+     */
+    public static final class Builder {
+        private final Locale locale;
+        private int numOfRange = 5;
+        private Ranges.Strategy strategy = Ranges.Strategy.EQUAL_WIDTH;
+        private int gramSize = 1;
+        private int wordMemory = -1;
+        private int parallelism = 1;
+        private ForkJoinPool pool;
+        private double tolerance;
+        private HistogramCache cache;
+
+        private Builder(Locale locale) {
+            this.locale = locale;
+        }
+
+        /**
+         * @param numOfRange Number of ranges from {@code 1} to {@link AnalystService#MAX_NUM_OF_RANGE}
+         */
+        public Builder numOfRange(int numOfRange) {
+            if (numOfRange < 1 || numOfRange > AnalystService.MAX_NUM_OF_RANGE) {
+                throw new IllegalArgumentException("Number of ranges must be from 1 to "
+                        + AnalystService.MAX_NUM_OF_RANGE + ".");
+            }
+            this.numOfRange = numOfRange;
+            return this;
+        }
+
+        public Builder rangeStrategy(Ranges.Strategy strategy) {
+            this.strategy = strategy;
+            return this;
+        }
+
+        /**
+         * @param gramSize Number of letters of counted n-grams, {@code 1} counts single letters only
+         */
+        public Builder gramSize(int gramSize) {
+            if (gramSize < 1 || gramSize > NGramCounter.MAX_GRAM_SIZE) {
+                throw new IllegalArgumentException("Size of n-gram must be from 1 to " + NGramCounter.MAX_GRAM_SIZE
+                        + ".");
+            }
+            this.gramSize = gramSize;
+            return this;
+        }
+
+        /**
+         * @param wordMemory Bytes of sketch of word frequencies, {@code 0} to count words exactly and {@code -1}
+         *                   to count letters only
+         */
+        public Builder wordMemory(int wordMemory) {
+            if (wordMemory < -1) {
+                throw new IllegalArgumentException("Memory of word counter must be -1, 0 or positive.");
+            }
+            this.wordMemory = wordMemory;
+            return this;
+        }
+
+        /**
+         * @param parallelism Number of threads counting a file, a pool of them is created by every analysis
+         */
+        public Builder parallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("Parallelism must be positive.");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * @param pool Pool shared by all analyses for counting files in parallel, it isn't shut down by analyzer
+         */
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * @param tolerance Maximum half-width of 95% confidence interval of letter share of estimated files or
+         *                  {@code 0} to count letters exactly
+         */
+        public Builder tolerance(double tolerance) {
+            if (!(tolerance >= 0 && tolerance < 1)) {
+                throw new IllegalArgumentException("Tolerance must be from 0 to 1.");
+            }
+            this.tolerance = tolerance;
+            return this;
+        }
+
+        /**
+         * @param cache Cache of file histograms or {@code null} to count files every time
+         */
+        public Builder cache(HistogramCache cache) {
+            this.cache = cache;
+            return this;
+        }
+
+        public Analyzer build() {
+            return new Analyzer(this);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Estimation of letter frequencies of large file from random blocks.
+ * <p>
+ * Blocks are read in random order by rounds. Sums of letter counts of blocks and of their squares give
+ * confidence interval of every estimated frequency. Reading stops when order of letters and their ranges
+ * didn't change for {@link #STABLE_ROUNDS} rounds and every confidence interval is narrower than tolerance.
+ *
+ * @author tkaczenko
+ */
+public class ApproximateCounter {
+    static final int BLOCK_SIZE = 64 * 1024;
+    static final int ROUND_BLOCKS = 8;
+    static final int MIN_BLOCKS = 32;
+    static final int STABLE_ROUNDS = 3;
+
+    /**
+     * Quantile of normal distribution for 95% confidence
+     */
+    static final double Z = 1.96;
+
+    private final double tolerance;
+    private final int numOfRange;
+    private final Ranges.Strategy strategy;
+    private final Random random;
+
+    /**
+     * @param tolerance  Maximum half-width of confidence interval of letter frequency as share of all letters
+     * @param numOfRange Number of ranges which must be stable
+     * @param strategy   Way of splitting frequencies into ranges
+     * @param seed       Seed of order of blocks
+     */
+    public ApproximateCounter(double tolerance, int numOfRange, Ranges.Strategy strategy, long seed) {
+        if (!(tolerance > 0)) {
+            throw new IllegalArgumentException("Tolerance must be positive.");
+        }
+        this.tolerance = tolerance;
+        this.numOfRange = numOfRange;
+        this.strategy = strategy;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Estimate letter frequencies of file
+     *
+     * @param path     File
+     * @param charset  Encoding of file, it must be splittable: single-byte, UTF-8 or UTF-16 without BOM
+     * @param alphabet Alphabet of text
+     * @param monitor  Monitor of reading
+     * @return Estimated frequencies of the whole file with their error bounds
+     * @throws IOException if file can't be read
+     */
+    public Estimate count(Path path, Charset charset, Alphabet alphabet, ProgressMonitor monitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int blocks = (int) ((size + BLOCK_SIZE - 1) / BLOCK_SIZE);
+            int[] order = shuffle(blocks);
+
+            int slots = alphabet.size() + 1;
+            long[] sums = new long[slots];
+            double[] squares = new double[slots];
+            Histogram block = new Histogram(alphabet);
+            byte[] byteSlots = ChunkedDecoder.isSingleByte(charset) ? alphabet.byteSlots(charset) : null;
+            CharsetDecoder decoder = ChunkedDecoder.newDecoder(charset);
+            ByteBuffer bytes = ByteBuffer.allocate(BLOCK_SIZE);
+            CharBuffer chars = CharBuffer.allocate(BLOCK_SIZE);
+
+            Estimate estimate = null;
+            int[] previous = null;
+            int stable = 0;
+            long read = 0;
+            int done = 0;
+            while (done < blocks) {
+                int end = Math.min(blocks, done + ROUND_BLOCKS);
+                for (; done < end; done++) {
+                    monitor.checkCancelled();
+                    bytes.clear();
+                    long position = (long) order[done] * BLOCK_SIZE;
+                    while (bytes.hasRemaining() && channel.read(bytes, position + bytes.position()) > 0) {
+                        // Read the whole block
+                    }
+                    bytes.flip();
+                    read += bytes.remaining();
+                    block.clear();
+                    if (byteSlots != null) {
+                        block.count(bytes, byteSlots);
+                    } else {
+                        // Bytes of characters cut by block bounds are replaced, they aren't letters
+                        decoder.reset();
+                        chars.clear();
+                        decoder.decode(bytes, chars, true);
+                        decoder.flush(chars);
+                        chars.flip();
+                        block.count(chars);
+                    }
+                    long[] counts = block.counts();
+                    for (int i = 0; i < slots; i++) {
+                        sums[i] += counts[i];
+                        squares[i] += (double) counts[i] * counts[i];
+                    }
+                    monitor.worked(read, size);
+                }
+                estimate = estimate(alphabet, sums, squares, done, blocks, read, size);
+                int[] ranks = estimate.ranks(numOfRange, strategy, tolerance);
+                stable = Arrays.equals(ranks, previous) ? stable + 1 : 0;
+                previous = ranks;
+                if (done >= MIN_BLOCKS && stable >= STABLE_ROUNDS && estimate.getMaxError() <= tolerance) {
+                    break;
+                }
+            }
+            return estimate != null ? estimate : estimate(alphabet, sums, squares, 0, 0, 0, size);
+        }
+    }
+
+    private int[] shuffle(int blocks) {
+        int[] order = new int[blocks];
+        for (int i = 0; i < blocks; i++) {
+            order[i] = i;
+        }
+        for (int i = blocks - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        return order;
+    }
+
+    /**
+     * Scale sums of sampled blocks to the whole file. Variance of total is
+     * {@code blocks^2 * (1 - sampled / blocks) * s^2 / sampled}, where {@code s^2} is variance of block counts.
+     */
+    private static Estimate estimate(Alphabet alphabet, long[] sums, double[] squares, int sampled, int blocks,
+                                     long read, long size) {
+        Histogram histogram = new Histogram(alphabet);
+        long[] counts = histogram.counts();
+        double[] errors = new double[sums.length];
+        double correction = blocks == 0 ? 0 : 1 - (double) sampled / blocks;
+        for (int i = 0; i < sums.length; i++) {
+            counts[i] = sampled == 0 ? 0 : Math.round((double) sums[i] * size / read);
+            if (sampled > 1) {
+                double mean = (double) sums[i] / sampled;
+                double variance = Math.max(0, (squares[i] - sampled * mean * mean) / (sampled - 1));
+                errors[i] = Z * blocks * Math.sqrt(correction * variance / sampled);
+            }
+        }
+        return new Estimate(histogram, errors, size == 0 ? 1 : (double) read / size);
+    }
+
+    /**
+     * Estimated letter frequencies
+     */
+    public static class Estimate {
+        private final Histogram histogram;
+
+        /**
+         * Half-width of 95% confidence interval of every counter of histogram
+         */
+        private final double[] errors;
+        private final double fractionRead;
+
+        Estimate(Histogram histogram, double[] errors, double fractionRead) {
+            this.histogram = histogram;
+            this.errors = errors;
+            this.fractionRead = fractionRead;
+        }
+
+        /**
+         * @return Estimated frequencies of letters of the whole text
+         */
+        public Histogram getHistogram() {
+            return histogram;
+        }
+
+        /**
+         * @param index Position of letter in alphabet
+         * @return Half-width of 95% confidence interval of letter frequency
+         */
+        public long getError(int index) {
+            return Math.round(errors[index + 1]);
+        }
+
+        /**
+         * @return The widest confidence interval of letter frequency as share of all letters
+         */
+        public double getMaxError() {
+            long letters = histogram.letters();
+            if (letters == 0) {
+                return 0;
+            }
+            double res = 0;
+            for (int i = 1; i < errors.length; i++) {
+                res = Math.max(res, errors[i]);
+            }
+            return res / letters;
+        }
+
+        /**
+         * @return Share of bytes of file which were read
+         */
+        public double getFractionRead() {
+            return fractionRead;
+        }
+
+        /**
+         * Letters in order of frequency followed by their ranges. Letters which shares differ by less than
+         * tolerance are ordered alphabetically, so they don't make order unstable.
+         */
+        int[] ranks(int numOfRange, Ranges.Strategy strategy, double tolerance) {
+            int size = histogram.getAlphabet().size();
+            long[] frequencies = new long[size];
+            long[] shares = new long[size];
+            Integer[] order = new Integer[size];
+            long letters = Math.max(1, histogram.letters());
+            for (int i = 0; i < size; i++) {
+                frequencies[i] = histogram.get(i);
+                shares[i] = Math.round(frequencies[i] / (letters * tolerance));
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> shares[a] != shares[b]
+                    ? Long.compare(shares[b], shares[a]) : Integer.compare(a, b));
+            int[] res = new int[size * 2];
+            Ranges ranges = histogram.letters() == 0 ? null : Ranges.of(frequencies, numOfRange, strategy);
+            for (int i = 0; i < size; i++) {
+                res[i] = order[i];
+                res[size + i] = ranges == null ? -1 : ranges.get(i);
+            }
+            return res;
+        }
+    }
+}
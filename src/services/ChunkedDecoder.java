@@ -0,0 +1,103 @@
+package services;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.function.Consumer;
+
+/**
+ * Decoding of bytes to characters with buffers of fixed size
+ *
+ * @author tkaczenko
+ */
+final class ChunkedDecoder {
+    /**
+     * Size of byte and char buffers
+     */
+    static final int CHUNK_SIZE = 64 * 1024;
+
+    private ChunkedDecoder() {
+    }
+
+    static void decode(ReadableByteChannel channel, Charset charset,
+                       Consumer<CharBuffer> consumer) throws IOException {
+        decode(channel, charset, consumer, ProgressMonitor.NONE, -1);
+    }
+
+    /**
+     * @param total Number of bytes in channel, {@code -1} if it's unknown
+     */
+    static void decode(ReadableByteChannel channel, Charset charset, Consumer<CharBuffer> consumer,
+                       ProgressMonitor monitor, long total) throws IOException {
+        CharsetDecoder decoder = newDecoder(charset);
+        ByteBuffer bytes = ByteBuffer.allocateDirect(CHUNK_SIZE);
+        CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+        long done = 0;
+        int read;
+        while ((read = channel.read(bytes)) != -1) {
+            monitor.checkCancelled();
+            done += read;
+            bytes.flip();
+            decode(decoder, bytes, chars, false, consumer);
+            bytes.compact();
+            monitor.worked(done, total);
+        }
+        bytes.flip();
+        decode(decoder, bytes, chars, true, consumer);
+        while (decoder.flush(chars) == CoderResult.OVERFLOW) {
+            deliver(chars, consumer);
+        }
+        deliver(chars, consumer);
+    }
+
+    static void read(Reader reader, Consumer<CharBuffer> consumer) throws IOException {
+        CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+        while (reader.read(chars) != -1) {
+            deliver(chars, consumer);
+        }
+        deliver(chars, consumer);
+    }
+
+    /**
+     * @param charset Encoding
+     * @return {@code true} if every byte encodes one character, so bytes can be counted without decoding
+     */
+    static boolean isSingleByte(Charset charset) {
+        return charset.canEncode() && charset.newEncoder().maxBytesPerChar() == 1.0f
+                && charset.newDecoder().maxCharsPerByte() == 1.0f;
+    }
+
+    /**
+     * @param charset Encoding
+     * @return Decoder replacing malformed input instead of failing on it
+     */
+    static CharsetDecoder newDecoder(Charset charset) {
+        return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * Decode all bytes which form complete characters, the rest stays in {@code bytes}
+     */
+    static void decode(CharsetDecoder decoder, ByteBuffer bytes, CharBuffer chars,
+                       boolean endOfInput, Consumer<CharBuffer> consumer) {
+        while (decoder.decode(bytes, chars, endOfInput) == CoderResult.OVERFLOW) {
+            deliver(chars, consumer);
+        }
+    }
+
+    private static void deliver(CharBuffer chars, Consumer<CharBuffer> consumer) {
+        chars.flip();
+        if (chars.hasRemaining()) {
+            consumer.accept(chars);
+        }
+        chars.clear();
+    }
+}
@@ -0,0 +1,237 @@
+package services;
+
+import java.awt.Color;
+import java.io.*;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Export of text with letters colored by their ranges.
+ * <p>
+ * Text is streamed from its source by chunks and every character is looked up in the range table, so memory
+ * doesn't depend on size of text. Neighbour characters of the same range and spaces between them are written
+ * as one span, and runs of characters are written to the writer without copying.
+ *
+ * @author tkaczenko
+ */
+public class ColoredExporter {
+    public enum Format {
+        /**
+         * HTML page with text in {@code <pre>} and a CSS class of every range. Spans are short {@code <i>}
+         * elements, because almost every letter starts a span.
+         */
+        HTML,
+        /**
+         * Text with 24-bit color escape sequences of terminal
+         */
+        ANSI
+    }
+
+    /**
+     * Size of buffer of writer
+     */
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int NONE = -1;
+    private static final String ANSI_RESET = "\u001B[0m";
+
+    private final byte[] rangeTable;
+    private final int[] colors;
+    private final Format format;
+
+    /**
+     * Start of span of every range
+     */
+    private final String[] tags;
+
+    /**
+     * @param rangeTable Range of every {@code char}, {@code -1} for characters without range
+     * @param colors     RGB color of every range, for example {@code 0xFF8000}
+     * @param format     Format of output
+     */
+    public ColoredExporter(byte[] rangeTable, int[] colors, Format format) {
+        this.rangeTable = rangeTable;
+        this.colors = colors;
+        this.format = format;
+        this.tags = new String[colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            int color = colors[i];
+            tags[i] = format == Format.HTML ? "<i class=r" + i + ">"
+                    : "\u001B[38;2;" + (color >> 16 & 0xFF) + ';' + (color >> 8 & 0xFF) + ';' + (color & 0xFF) + 'm';
+        }
+    }
+
+    /**
+     * @param size Number of ranges
+     * @return Colors of equally distant hues from red for the most frequent letters to violet
+     */
+    public static int[] palette(int size) {
+        int[] colors = new int[size];
+        for (int i = 0; i < size; i++) {
+            float hue = size == 1 ? 0 : 0.8f * i / (size - 1);
+            colors[i] = Color.HSBtoRGB(hue, 0.85f, 0.8f) & 0xFFFFFF;
+        }
+        return colors;
+    }
+
+    /**
+     * Export file to file
+     *
+     * @param path    Text file
+     * @param charset Encoding of text file
+     * @param output  Exported file, it's written in UTF-8
+     * @param monitor Monitor of reading
+     * @throws IOException if file can't be read or written
+     */
+    public void export(Path path, Charset charset, Path output, ProgressMonitor monitor) throws IOException {
+        try (Writer out = new OutputStreamWriter(Files.newOutputStream(output), StandardCharsets.UTF_8)) {
+            export(TextSource.of(path, charset), path.getFileName().toString(), out, monitor);
+        }
+    }
+
+    /**
+     * Export text to writer. Writer is flushed but isn't closed.
+     *
+     * @param source  Text
+     * @param title   Title of HTML page
+     * @param out     Writer of exported text
+     * @param monitor Monitor of reading
+     * @throws IOException if text can't be read or written
+     */
+    public void export(TextSource source, String title, Writer out, ProgressMonitor monitor) throws IOException {
+        Spans spans = new Spans(new BufferedWriter(out, BUFFER_SIZE));
+        spans.begin(title);
+        try {
+            source.read(spans::write, monitor);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        spans.end();
+    }
+
+    private static String hex(int color) {
+        String digits = Integer.toHexString(color | 0x1000000);
+        return digits.substring(1);
+    }
+
+    /**
+     * Writer of spans which keeps the current span open between chunks
+     */
+    private class Spans {
+        private final Writer out;
+        private int open = NONE;
+
+        Spans(Writer out) {
+            this.out = out;
+        }
+
+        void begin(String title) throws IOException {
+            if (format == Format.ANSI) {
+                return;
+            }
+            out.write("<!DOCTYPE html>\n<html><head><meta charset=\"utf-8\"><title>");
+            escape(title.toCharArray(), 0, title.length());
+            out.write("</title><style>\ni{font-style:normal}\n");
+            for (int i = 0; i < colors.length; i++) {
+                out.write(".r" + i + "{color:#" + hex(colors[i]) + "}\n");
+            }
+            out.write("</style></head><body><pre>");
+        }
+
+        void write(CharBuffer chunk) {
+            try {
+                if (chunk.hasArray()) {
+                    write(chunk.array(), chunk.arrayOffset() + chunk.position(),
+                            chunk.arrayOffset() + chunk.limit());
+                } else {
+                    char[] chars = chunk.toString().toCharArray();
+                    write(chars, 0, chars.length);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void write(char[] chars, int start, int end) throws IOException {
+            byte[] rangeTable = ColoredExporter.this.rangeTable;
+            int run = start;
+            for (int i = start; i < end; i++) {
+                char c = chars[i];
+                int range = rangeTable[c];
+                if (range == open || range == NONE && open != NONE && (c == ' ' || c == '\t')) {
+                    // Spaces don't split span of the same range
+                    continue;
+                }
+                flush(chars, run, i);
+                run = i;
+                close();
+                if (range != NONE) {
+                    open(range);
+                }
+            }
+            flush(chars, run, end);
+        }
+
+        private void flush(char[] chars, int start, int end) throws IOException {
+            if (start == end) {
+                return;
+            }
+            if (format == Format.HTML) {
+                escape(chars, start, end - start);
+            } else {
+                out.write(chars, start, end - start);
+            }
+        }
+
+        private void open(int range) throws IOException {
+            out.write(tags[range]);
+            open = range;
+        }
+
+        private void close() throws IOException {
+            if (open == NONE) {
+                return;
+            }
+            out.write(format == Format.HTML ? "</i>" : ANSI_RESET);
+            open = NONE;
+        }
+
+        /**
+         * Write characters replacing special characters of HTML by entities
+         */
+        private void escape(char[] chars, int start, int length) throws IOException {
+            int run = start;
+            for (int i = start, end = start + length; i < end; i++) {
+                String entity;
+                switch (chars[i]) {
+                    case '<':
+                        entity = "&lt;";
+                        break;
+                    case '>':
+                        entity = "&gt;";
+                        break;
+                    case '&':
+                        entity = "&amp;";
+                        break;
+                    default:
+                        continue;
+                }
+                out.write(chars, run, i - run);
+                out.write(entity);
+                run = i + 1;
+            }
+            out.write(chars, run, start + length - run);
+        }
+
+        void end() throws IOException {
+            close();
+            if (format == Format.HTML) {
+                out.write("</pre></body></html>\n");
+            }
+            out.flush();
+        }
+    }
+}
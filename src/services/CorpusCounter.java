@@ -0,0 +1,404 @@
+package services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Parallel letter counting of all files of directory tree.
+ * <p>
+ * The calling thread walks the tree and queues files in batches of about {@link #BATCH_BYTES}, so many small
+ * files cost one queue operation per batch. Workers count files while the tree is still walked. Every file
+ * is counted into its own {@link Histogram} with buffers and decoders reused by the worker, and every worker
+ * keeps its own sum, so sums are merged by array addition only at the end.
+ *
+ * @author tkaczenko
+ */
+public class CorpusCounter {
+    /**
+     * Size of files of one batch
+     */
+    static final int BATCH_BYTES = 1 << 20;
+
+    /**
+     * Largest number of files of one batch
+     */
+    static final int BATCH_FILES = 256;
+
+    /**
+     * Number of batches queued per worker, the walk waits when workers are behind
+     */
+    private static final int BATCHES_PER_WORKER = 4;
+
+    /**
+     * Batch which stops worker
+     */
+    private static final List<Path> END = Collections.emptyList();
+
+    private final int parallelism;
+
+    /**
+     * @param parallelism Number of worker threads
+     */
+    public CorpusCounter(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive.");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Count letters of every file of directory tree. Files which can't be read are skipped and reported
+     * by {@link Corpus#getErrors()}.
+     *
+     * @param directory Root of tree
+     * @param glob      Pattern of names of counted files, for example {@code *.txt}
+     * @param charset   Encoding of files, {@code null} if it's detected for every file
+     * @param alphabet  Alphabet of corpus
+     * @param monitor   Monitor of counting, total is unknown until the tree is walked
+     * @return Histograms of files and of the whole corpus
+     * @throws IOException           if directory can't be walked
+     * @throws CancellationException if monitor cancels counting
+     */
+    public Corpus count(Path directory, String glob, Charset charset, Alphabet alphabet,
+                        ProgressMonitor monitor) throws IOException {
+        long start = Metrics.start();
+        Metrics.parallelism(parallelism);
+        Progress progress = new Progress(monitor);
+        Walker walker = new Walker(FileSystems.getDefault().getPathMatcher("glob:" + glob),
+                new ArrayBlockingQueue<>(parallelism * BATCHES_PER_WORKER), progress);
+        List<Worker> workers = new ArrayList<>(parallelism);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "corpus");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (int i = 0; i < parallelism; i++) {
+                Worker worker = new Worker(charset, alphabet, walker.queue, progress);
+                workers.add(worker);
+                executor.execute(worker);
+            }
+            walker.walk(directory);
+        } catch (RuntimeException e) {
+            progress.fail(e);
+        } finally {
+            // Workers stop after the queue is drained
+            for (int i = 0; i < parallelism; i++) {
+                putUninterruptibly(walker.queue, END);
+            }
+            executor.shutdown();
+            awaitUninterruptibly(executor);
+        }
+        Throwable failure = progress.failure.get();
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+
+        Histogram histogram = new Histogram(alphabet);
+        Map<Path, Histogram> files = new TreeMap<>();
+        Map<Path, String> errors = new TreeMap<>();
+        for (Worker worker : workers) {
+            histogram.add(worker.sum);
+            files.putAll(worker.files);
+            errors.putAll(worker.errors);
+        }
+        Metrics.record(Metrics.Phase.COUNT, start);
+        Metrics.processed(progress.done.get(), histogram.characters());
+        return new Corpus(histogram, files, errors, progress.done.get());
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    private static void putUninterruptibly(BlockingQueue<List<Path>> queue, List<Path> batch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(batch);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitUninterruptibly(ExecutorService executor) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Number of counted bytes of all workers and the first failure which stops counting
+     */
+    private static class Progress {
+        private final ProgressMonitor monitor;
+        private final AtomicLong done = new AtomicLong();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        /**
+         * Size of all files, {@code -1} until the tree is walked
+         */
+        private volatile long total = -1;
+
+        Progress(ProgressMonitor monitor) {
+            this.monitor = monitor;
+        }
+
+        void worked(long bytes) {
+            monitor.worked(done.addAndGet(bytes), total);
+        }
+
+        void fail(Throwable e) {
+            failure.compareAndSet(null, e);
+        }
+
+        boolean isFailed() {
+            return failure.get() != null;
+        }
+    }
+
+    /**
+     * Walk of tree which queues batches of matching files
+     */
+    private static class Walker extends SimpleFileVisitor<Path> {
+        private final PathMatcher matcher;
+        private final BlockingQueue<List<Path>> queue;
+        private final Progress progress;
+
+        private List<Path> batch = new ArrayList<>();
+        private long batchBytes;
+        private long size;
+        private Path directory;
+
+        Walker(PathMatcher matcher, BlockingQueue<List<Path>> queue, Progress progress) {
+            this.matcher = matcher;
+            this.queue = queue;
+            this.progress = progress;
+        }
+
+        void walk(Path directory) throws IOException {
+            this.directory = directory;
+            Files.walkFileTree(directory, this);
+            if (!batch.isEmpty()) {
+                putUninterruptibly(queue, batch);
+            }
+            progress.total = size;
+            progress.monitor.worked(progress.done.get(), size);
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+            progress.monitor.checkCancelled();
+            if (progress.isFailed()) {
+                return FileVisitResult.TERMINATE;
+            }
+            if (!attributes.isRegularFile() || !matcher.matches(file.getFileName())) {
+                return FileVisitResult.CONTINUE;
+            }
+            batch.add(file);
+            batchBytes += attributes.size();
+            size += attributes.size();
+            if (batchBytes >= BATCH_BYTES || batch.size() == BATCH_FILES) {
+                putUninterruptibly(queue, batch);
+                batch = new ArrayList<>();
+                batchBytes = 0;
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+            if (file.equals(directory)) {
+                throw e;
+            }
+            // Unreadable subdirectories are skipped
+            return FileVisitResult.CONTINUE;
+        }
+    }
+
+    private static class Worker implements Runnable {
+        private final Charset charset;
+        private final Alphabet alphabet;
+        private final BlockingQueue<List<Path>> queue;
+        private final Progress progress;
+
+        private final ByteBuffer bytes = ByteBuffer.allocateDirect(ChunkedDecoder.CHUNK_SIZE);
+        private final CharBuffer chars = CharBuffer.allocate(ChunkedDecoder.CHUNK_SIZE);
+        private final Map<Charset, CharsetDecoder> decoders = new HashMap<>();
+
+        private final Histogram sum;
+        private final Map<Path, Histogram> files = new HashMap<>();
+        private final Map<Path, String> errors = new HashMap<>();
+
+        Worker(Charset charset, Alphabet alphabet, BlockingQueue<List<Path>> queue, Progress progress) {
+            this.charset = charset;
+            this.alphabet = alphabet;
+            this.queue = queue;
+            this.progress = progress;
+            this.sum = new Histogram(alphabet);
+        }
+
+        @Override
+        public void run() {
+            List<Path> batch;
+            while ((batch = take()) != END) {
+                // Batches queued before failure are drained without counting
+                for (int i = 0; i < batch.size() && !progress.isFailed(); i++) {
+                    Path file = batch.get(i);
+                    try {
+                        Histogram histogram = count(file);
+                        sum.add(histogram);
+                        files.put(file, histogram);
+                    } catch (IOException e) {
+                        errors.put(file, String.valueOf(e.getMessage()));
+                    } catch (RuntimeException | Error e) {
+                        progress.fail(e);
+                    }
+                }
+            }
+        }
+
+        private List<Path> take() {
+            while (true) {
+                try {
+                    return queue.take();
+                } catch (InterruptedException e) {
+                    // Worker stops only at the end of queue, so the walk never waits for it forever
+                }
+            }
+        }
+
+        private Histogram count(Path file) throws IOException {
+            progress.monitor.checkCancelled();
+            Histogram histogram = new Histogram(alphabet);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                bytes.clear();
+                int read = channel.read(bytes);
+                if (read == -1) {
+                    return histogram;
+                }
+                bytes.flip();
+                // Encoding is detected from the first chunk, so file is read once
+                Charset encoding = charset != null ? charset : EncodingDetector.detect(bytes);
+                if (ChunkedDecoder.isSingleByte(encoding)) {
+                    countBytes(channel, histogram, alphabet.byteSlots(encoding), read);
+                } else {
+                    decode(channel, histogram, decoder(encoding), read);
+                }
+            }
+            return histogram;
+        }
+
+        private void countBytes(FileChannel channel, Histogram histogram, byte[] byteSlots,
+                                int read) throws IOException {
+            do {
+                histogram.count(bytes, byteSlots);
+                progress.worked(read);
+                bytes.clear();
+                read = channel.read(bytes);
+                bytes.flip();
+            } while (read != -1);
+        }
+
+        private void decode(FileChannel channel, Histogram histogram, CharsetDecoder decoder,
+                            int read) throws IOException {
+            decoder.reset();
+            chars.clear();
+            do {
+                ChunkedDecoder.decode(decoder, bytes, chars, false, histogram::count);
+                progress.worked(read);
+                bytes.compact();
+                read = channel.read(bytes);
+                bytes.flip();
+            } while (read != -1);
+            ChunkedDecoder.decode(decoder, bytes, chars, true, histogram::count);
+            while (decoder.flush(chars) == CoderResult.OVERFLOW) {
+                count(histogram);
+            }
+            count(histogram);
+        }
+
+        private void count(Histogram histogram) {
+            chars.flip();
+            histogram.count(chars);
+            chars.clear();
+        }
+
+        private CharsetDecoder decoder(Charset encoding) {
+            return decoders.computeIfAbsent(encoding, ChunkedDecoder::newDecoder);
+        }
+    }
+
+    /**
+     * Histograms of corpus
+     */
+    public static class Corpus {
+        private final Histogram histogram;
+        private final Map<Path, Histogram> files;
+        private final Map<Path, String> errors;
+        private final long bytes;
+
+        Corpus(Histogram histogram, Map<Path, Histogram> files, Map<Path, String> errors, long bytes) {
+            this.histogram = histogram;
+            this.files = Collections.unmodifiableMap(files);
+            this.errors = Collections.unmodifiableMap(errors);
+            this.bytes = bytes;
+        }
+
+        /**
+         * @return Sum of histograms of all files
+         */
+        public Histogram getHistogram() {
+            return histogram;
+        }
+
+        /**
+         * @return Histogram of every counted file sorted by path
+         */
+        public Map<Path, Histogram> getFiles() {
+            return files;
+        }
+
+        /**
+         * @return Message of error of every skipped file
+         */
+        public Map<Path, String> getErrors() {
+            return errors;
+        }
+
+        /**
+         * @return Size of counted files
+         */
+        public long getBytes() {
+            return bytes;
+        }
+    }
+}
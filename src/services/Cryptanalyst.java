@@ -0,0 +1,485 @@
+package services;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Attack on shift and Vigenère ciphers by letter frequencies.
+ * <p>
+ * Only letters of {@link Alphabet} are shifted, other characters are kept and don't move the key. Shift is scored
+ * by chi-squared distance of ciphertext histogram read at rotated indices from letter frequencies of language,
+ * so keys are tried on counters instead of text. Histograms of columns of every key length are counted in one
+ * pass by {@link Columns}, key lengths are estimated by index of coincidence of their columns and evaluated in
+ * parallel. Text is decrypted once, with the found key.
+ *
+ * @author tkaczenko
+ */
+public class Cryptanalyst implements AutoCloseable {
+    /**
+     * Longest key which is tried by default
+     */
+    public static final int MAX_KEY_LENGTH = 20;
+
+    /**
+     * Share of distance from the largest index of coincidence to random one within which the shortest key
+     * length is chosen. Multiples of key length have about the same index, divisors of it have much less.
+     */
+    private static final double INDEX_TOLERANCE = 0.25;
+
+    private final Alphabet alphabet;
+
+    /**
+     * Probability of every letter in plain text
+     */
+    private final double[] frequencies;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param alphabet    Alphabet of plain text, English, Russian or Ukrainian
+     * @param parallelism Number of threads evaluating key lengths
+     * @throws IllegalArgumentException if letter frequencies of language are unknown
+     */
+    public Cryptanalyst(Alphabet alphabet, int parallelism) throws IllegalArgumentException {
+        this.alphabet = alphabet;
+        this.frequencies = LanguageDetector.frequencies(alphabet);
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * @param histogram Histogram of text
+     * @return Probability that two letters taken from text at random are the same
+     */
+    public static double indexOfCoincidence(Histogram histogram) {
+        long letters = histogram.letters();
+        if (letters < 2) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = 0; i < histogram.getAlphabet().size(); i++) {
+            long count = histogram.get(i);
+            sum += (double) count * (count - 1);
+        }
+        return sum / ((double) letters * (letters - 1));
+    }
+
+    /**
+     * @return Index of coincidence of plain text of language
+     */
+    public double getExpectedIndex() {
+        double sum = 0;
+        for (double frequency : frequencies) {
+            sum += frequency * frequency;
+        }
+        return sum;
+    }
+
+    /**
+     * @return Index of coincidence of random letters
+     */
+    public double getRandomIndex() {
+        return 1.0 / alphabet.size();
+    }
+
+    /**
+     * Score shift key without decrypting text: letter {@code i} of plain text is counted by counter
+     * {@code i + shift} of ciphertext histogram.
+     *
+     * @param histogram Histogram of ciphertext
+     * @param shift     Key from {@code 0} to size of alphabet
+     * @return Chi-squared distance of decrypted letters from frequencies of language, the less the more likely
+     */
+    public double chiSquared(Histogram histogram, int shift) {
+        int size = alphabet.size();
+        long letters = histogram.letters();
+        if (letters == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            double expected = letters * frequencies[i];
+            double difference = histogram.get((i + shift) % size) - expected;
+            sum += difference * difference / expected;
+        }
+        return sum;
+    }
+
+    /**
+     * Score every key of shift cipher
+     *
+     * @param histogram Histogram of ciphertext
+     * @return Keys in ascending order of chi-squared distance, the first one is the most likely
+     */
+    public List<Shift> shifts(Histogram histogram) {
+        checkAlphabet(histogram);
+        List<Shift> res = new ArrayList<>(alphabet.size());
+        for (int shift = 0; shift < alphabet.size(); shift++) {
+            res.add(new Shift(shift, alphabet.letterAt(shift), chiSquared(histogram, shift)));
+        }
+        res.sort(Comparator.comparingDouble(Shift::getChiSquared));
+        return res;
+    }
+
+    /**
+     * Count histograms of columns of every key length in one pass
+     *
+     * @param source       Ciphertext
+     * @param maxKeyLength Longest key
+     * @param monitor      Monitor of reading
+     * @return Histograms of columns
+     * @throws IOException if text can't be read
+     */
+    public Columns columns(TextSource source, int maxKeyLength, ProgressMonitor monitor) throws IOException {
+        Columns columns = new Columns(alphabet, maxKeyLength);
+        source.read(columns::count, monitor);
+        return columns;
+    }
+
+    /**
+     * Find the best key of every length in parallel. Shift of every column is the one with the least
+     * chi-squared distance.
+     *
+     * @param columns Histograms of columns of ciphertext
+     * @return Best key of every length from {@code 1} to {@link Columns#getMaxKeyLength()}, in order of length
+     */
+    public List<Key> keys(Columns columns) {
+        checkAlphabet(columns.get(1, 0));
+        List<Callable<Key>> tasks = new ArrayList<>(columns.getMaxKeyLength());
+        for (int length = 1; length <= columns.getMaxKeyLength(); length++) {
+            int keyLength = length;
+            tasks.add(() -> key(columns, keyLength));
+        }
+        List<Key> res = new ArrayList<>(tasks.size());
+        try {
+            for (Future<Key> future : pool.invokeAll(tasks)) {
+                res.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        return res;
+    }
+
+    private Key key(Columns columns, int length) {
+        int[] shifts = new int[length];
+        double index = 0;
+        double chiSquared = 0;
+        for (int column = 0; column < length; column++) {
+            Histogram histogram = columns.get(length, column);
+            index += indexOfCoincidence(histogram);
+            double best = Double.MAX_VALUE;
+            for (int shift = 0; shift < alphabet.size(); shift++) {
+                double score = chiSquared(histogram, shift);
+                if (score < best) {
+                    best = score;
+                    shifts[column] = shift;
+                }
+            }
+            chiSquared += best;
+        }
+        char[] letters = new char[length];
+        for (int i = 0; i < length; i++) {
+            letters[i] = alphabet.letterAt(shifts[i]);
+        }
+        return new Key(shifts, new String(letters), index / length, chiSquared);
+    }
+
+    /**
+     * Find key of Vigenère cipher: the shortest key whose columns have index of coincidence close to the largest
+     * one, because columns of shorter keys mix letters of different shifts.
+     *
+     * @param columns Histograms of columns of ciphertext
+     * @return The most likely key, key of length {@code 1} is key of shift cipher
+     */
+    public Key crack(Columns columns) {
+        List<Key> keys = keys(columns);
+        double max = 0;
+        for (Key key : keys) {
+            max = Math.max(max, key.getIndex());
+        }
+        double threshold = max - INDEX_TOLERANCE * (max - getRandomIndex());
+        for (Key key : keys) {
+            if (key.getIndex() >= threshold) {
+                return key;
+            }
+        }
+        return keys.get(0);
+    }
+
+    /**
+     * Decrypt text in one pass. Case of letters and other characters are kept.
+     *
+     * @param source  Ciphertext
+     * @param shifts  Shift of every position of key
+     * @param out     Writer of plain text, it isn't closed
+     * @param monitor Monitor of reading
+     * @throws IOException if text can't be read or written
+     */
+    public void decrypt(TextSource source, int[] shifts, Writer out, ProgressMonitor monitor) throws IOException {
+        Decryption decryption = new Decryption(shifts, out);
+        try {
+            source.read(decryption::write, monitor);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+    }
+
+    public Alphabet getAlphabet() {
+        return alphabet;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private void checkAlphabet(Histogram histogram) {
+        if (histogram.getAlphabet() != alphabet) {
+            throw new IllegalArgumentException("Histogram must have alphabet of cryptanalyst.");
+        }
+    }
+
+    /**
+     * Decryption which keeps position in key between chunks
+     */
+    private class Decryption {
+        private final int[] shifts;
+        private final Writer out;
+        private final char[] lowerCase;
+        private char[] buffer = new char[0];
+        private int position;
+
+        Decryption(int[] shifts, Writer out) {
+            this.shifts = shifts.clone();
+            this.out = out;
+            this.lowerCase = new char[alphabet.size()];
+            for (int i = 0; i < lowerCase.length; i++) {
+                lowerCase[i] = Character.toLowerCase(alphabet.letterAt(i));
+            }
+        }
+
+        void write(CharBuffer chunk) {
+            int length = chunk.remaining();
+            if (buffer.length < length) {
+                buffer = new char[length];
+            }
+            chunk.duplicate().get(buffer, 0, length);
+            byte[] slots = alphabet.slots();
+            int size = alphabet.size();
+            for (int i = 0; i < length; i++) {
+                char c = buffer[i];
+                int index = slots[c] - 1;
+                if (index < 0) {
+                    continue;
+                }
+                int plain = (index - shifts[position] + size) % size;
+                buffer[i] = Character.isLowerCase(c) ? lowerCase[plain] : alphabet.letterAt(plain);
+                position = position + 1 == shifts.length ? 0 : position + 1;
+            }
+            try {
+                out.write(buffer, 0, length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Histograms of columns of ciphertext for every key length: letter number {@code n} of text is counted
+     * in column {@code n % length} of every length.
+     */
+    public static class Columns {
+        private final Alphabet alphabet;
+
+        /**
+         * Histograms by key length minus one and column
+         */
+        private final Histogram[][] histograms;
+
+        /**
+         * Counters of {@link #histograms}, so the hot loop doesn't call methods
+         */
+        private final long[][][] counts;
+
+        /**
+         * Column of the next letter for every key length
+         */
+        private final int[] positions;
+
+        /**
+         * @param alphabet     Alphabet of ciphertext
+         * @param maxKeyLength Longest key
+         */
+        public Columns(Alphabet alphabet, int maxKeyLength) {
+            if (maxKeyLength < 1) {
+                throw new IllegalArgumentException("Key length must be positive.");
+            }
+            this.alphabet = alphabet;
+            this.histograms = new Histogram[maxKeyLength][];
+            this.counts = new long[maxKeyLength][][];
+            this.positions = new int[maxKeyLength];
+            for (int i = 0; i < maxKeyLength; i++) {
+                histograms[i] = new Histogram[i + 1];
+                counts[i] = new long[i + 1][];
+                for (int column = 0; column <= i; column++) {
+                    histograms[i][column] = new Histogram(alphabet);
+                    counts[i][column] = histograms[i][column].counts();
+                }
+            }
+        }
+
+        /**
+         * Count the next chunk of ciphertext
+         *
+         * @param text Chunk of text
+         */
+        public void count(CharSequence text) {
+            if (text instanceof CharBuffer) {
+                CharBuffer buffer = (CharBuffer) text;
+                if (buffer.hasArray()) {
+                    count(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                    return;
+                }
+            }
+            for (int i = 0, end = text.length(); i < end; i++) {
+                next(text.charAt(i));
+            }
+        }
+
+        /**
+         * Count the next chunk of ciphertext
+         *
+         * @param chars  Characters
+         * @param offset Index of the first character
+         * @param length Number of characters
+         */
+        public void count(char[] chars, int offset, int length) {
+            for (int i = offset, end = offset + length; i < end; i++) {
+                next(chars[i]);
+            }
+        }
+
+        private void next(char c) {
+            int slot = alphabet.slots()[c];
+            if (slot == 0) {
+                return;
+            }
+            long[][][] counts = this.counts;
+            int[] positions = this.positions;
+            for (int i = 0; i < positions.length; i++) {
+                int column = positions[i];
+                counts[i][column][slot]++;
+                positions[i] = column == i ? 0 : column + 1;
+            }
+        }
+
+        /**
+         * @param keyLength Length of key
+         * @param column    Position in key
+         * @return Histogram of letters at this position of key
+         */
+        public Histogram get(int keyLength, int column) {
+            return histograms[keyLength - 1][column];
+        }
+
+        public int getMaxKeyLength() {
+            return histograms.length;
+        }
+
+        /**
+         * @return Number of counted letters
+         */
+        public long letters() {
+            return histograms[0][0].letters();
+        }
+    }
+
+    /**
+     * Key of shift cipher and its score
+     */
+    public static class Shift {
+        private final int shift;
+        private final char letter;
+        private final double chiSquared;
+
+        Shift(int shift, char letter, double chiSquared) {
+            this.shift = shift;
+            this.letter = letter;
+            this.chiSquared = chiSquared;
+        }
+
+        public int getShift() {
+            return shift;
+        }
+
+        /**
+         * @return Letter which the first letter of alphabet is encrypted to
+         */
+        public char getLetter() {
+            return letter;
+        }
+
+        public double getChiSquared() {
+            return chiSquared;
+        }
+    }
+
+    /**
+     * Key of Vigenère cipher and its scores
+     */
+    public static class Key {
+        private final int[] shifts;
+        private final String letters;
+        private final double index;
+        private final double chiSquared;
+
+        Key(int[] shifts, String letters, double index, double chiSquared) {
+            this.shifts = shifts;
+            this.letters = letters;
+            this.index = index;
+            this.chiSquared = chiSquared;
+        }
+
+        public int getLength() {
+            return shifts.length;
+        }
+
+        /**
+         * @return Shift of every position of key
+         */
+        public int[] getShifts() {
+            return shifts.clone();
+        }
+
+        /**
+         * @return Key as letters of alphabet, the first letter means no shift
+         */
+        public String getLetters() {
+            return letters;
+        }
+
+        /**
+         * @return Mean index of coincidence of columns
+         */
+        public double getIndex() {
+            return index;
+        }
+
+        /**
+         * @return Sum of chi-squared distances of columns
+         */
+        public double getChiSquared() {
+            return chiSquared;
+        }
+    }
+}
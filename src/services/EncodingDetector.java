@@ -0,0 +1,145 @@
+package services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.*;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Guess of encoding of text file from its beginning.
+ * <p>
+ * Byte order mark is trusted first. Text without it is UTF-16 if zero bytes are at odd or even positions
+ * only, UTF-8 if it's valid UTF-8, otherwise the
+ * Cyrillic encoding which decodes more lower-case letters is chosen: lower-case letters are more frequent
+ * in text, and windows-1251 and KOI8-U swap ranges of lower-case and upper-case letters.
+ *
+ * @author tkaczenko
+ */
+public final class EncodingDetector {
+    public static final Charset WINDOWS_1251 = Charset.forName("windows-1251");
+    public static final Charset KOI8_U = Charset.forName("KOI8-U");
+
+    /**
+     * Number of bytes read from the beginning of file
+     */
+    static final int SAMPLE_SIZE = 64 * 1024;
+
+    private EncodingDetector() {
+    }
+
+    /**
+     * Guess encoding of file
+     *
+     * @param path File
+     * @return Encoding of file, UTF-8 if file is empty
+     * @throws IOException if file can't be read
+     */
+    public static Charset detect(Path path) throws IOException {
+        ByteBuffer sample = ByteBuffer.allocate(SAMPLE_SIZE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (sample.hasRemaining() && channel.read(sample) != -1) {
+                // Read the whole sample
+            }
+        }
+        sample.flip();
+        return detect(sample);
+    }
+
+    /**
+     * Guess encoding of the beginning of text
+     *
+     * @param sample Bytes of text, position of buffer isn't changed
+     * @return Encoding of text
+     */
+    public static Charset detect(ByteBuffer sample) {
+        Charset bom = bom(sample);
+        if (bom != null) {
+            return bom;
+        }
+        Charset utf16 = utf16(sample);
+        if (utf16 != null) {
+            return utf16;
+        }
+        if (isUtf8(sample.duplicate())) {
+            return StandardCharsets.UTF_8;
+        }
+        return lowerCase(sample, KOI8_U) > lowerCase(sample, WINDOWS_1251) ? KOI8_U : WINDOWS_1251;
+    }
+
+    private static Charset bom(ByteBuffer sample) {
+        int p = sample.position();
+        if (sample.remaining() >= 3 && (sample.get(p) & 0xFF) == 0xEF && (sample.get(p + 1) & 0xFF) == 0xBB
+                && (sample.get(p + 2) & 0xFF) == 0xBF) {
+            return StandardCharsets.UTF_8;
+        }
+        if (sample.remaining() >= 2) {
+            int first = sample.get(p) & 0xFF;
+            int second = sample.get(p + 1) & 0xFF;
+            if (first == 0xFF && second == 0xFE) {
+                return StandardCharsets.UTF_16LE;
+            }
+            if (first == 0xFE && second == 0xFF) {
+                return StandardCharsets.UTF_16BE;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Text in UTF-16 without byte order mark has zero bytes of spaces and Latin letters at one parity only
+     */
+    private static Charset utf16(ByteBuffer sample) {
+        int[] zeros = new int[2];
+        for (int i = sample.position(); i < sample.limit(); i++) {
+            if (sample.get(i) == 0) {
+                zeros[(i - sample.position()) & 1]++;
+            }
+        }
+        int pairs = sample.remaining() / 2;
+        if (zeros[1] > pairs / 10 && zeros[0] < pairs / 100) {
+            return StandardCharsets.UTF_16LE;
+        }
+        if (zeros[0] > pairs / 10 && zeros[1] < pairs / 100) {
+            return StandardCharsets.UTF_16BE;
+        }
+        return null;
+    }
+
+    /**
+     * Character cut at the end of sample doesn't make it invalid
+     */
+    private static boolean isUtf8(ByteBuffer sample) {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        CharBuffer chars = CharBuffer.allocate(ChunkedDecoder.CHUNK_SIZE);
+        while (true) {
+            CoderResult result = decoder.decode(sample, chars, false);
+            if (result.isError()) {
+                return false;
+            }
+            if (result.isUnderflow()) {
+                return sample.remaining() < 4;
+            }
+            chars.clear();
+        }
+    }
+
+    /**
+     * @return Number of lower-case Cyrillic letters in decoded sample
+     */
+    private static int lowerCase(ByteBuffer sample, Charset charset) {
+        CharBuffer chars = charset.decode(sample.duplicate());
+        int res = 0;
+        while (chars.hasRemaining()) {
+            char c = chars.get();
+            if (c >= '\u0430' && c <= '\u045F' || c == '\u0491') {
+                res++;
+            }
+        }
+        return res;
+    }
+}
@@ -0,0 +1,78 @@
+package services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Text of file. Unlike other sources it can be counted by parts with {@link ParallelCounter}.
+ *
+ * @author tkaczenko
+ */
+public class FileSource implements TextSource {
+    private final Path path;
+    private final Charset charset;
+
+    public FileSource(Path path, Charset charset) {
+        this.path = path;
+        this.charset = charset;
+    }
+
+    @Override
+    public void read(Consumer<CharBuffer> consumer) throws IOException {
+        read(consumer, ProgressMonitor.NONE);
+    }
+
+    /**
+     * Pass every chunk of file to consumer, report number of read bytes to monitor and stop reading
+     * when it's cancelled
+     */
+    @Override
+    public void read(Consumer<CharBuffer> consumer, ProgressMonitor monitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ChunkedDecoder.decode(channel, charset, consumer, monitor, channel.size());
+        }
+    }
+
+    /**
+     * Count letters of file. Bytes of single-byte encodings are counted without decoding them.
+     *
+     * @param histogram Histogram of file's alphabet
+     * @param monitor   Monitor of counting
+     * @throws IOException if file can't be read
+     */
+    void count(Histogram histogram, ProgressMonitor monitor) throws IOException {
+        if (!ChunkedDecoder.isSingleByte(charset)) {
+            read(histogram::count, monitor);
+            return;
+        }
+        byte[] byteSlots = histogram.getAlphabet().byteSlots(charset);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer bytes = ByteBuffer.allocateDirect(ChunkedDecoder.CHUNK_SIZE);
+            long total = channel.size();
+            long done = 0;
+            int read;
+            while ((read = channel.read(bytes)) != -1) {
+                monitor.checkCancelled();
+                done += read;
+                bytes.flip();
+                histogram.count(bytes, byteSlots);
+                bytes.clear();
+                monitor.worked(done, total);
+            }
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+}
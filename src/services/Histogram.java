@@ -0,0 +1,267 @@
+package services;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.*;
+
+/**
+ * Dense letter counters of an {@link Alphabet}.
+ * <p>
+ * Counting is a single pass over {@code char} data without boxing or allocation per character.
+ *
+ * @author tkaczenko
+ */
+public class Histogram {
+    private final Alphabet alphabet;
+
+    /**
+     * Counter of every alphabet slot, {@code counts[0]} collects all other characters
+     */
+    private final long[] counts;
+
+    public Histogram(Alphabet alphabet) {
+        this.alphabet = alphabet;
+        this.counts = new long[alphabet.size() + 1];
+    }
+
+    /**
+     * Count letters of text
+     *
+     * @param text Text
+     */
+    public void count(CharSequence text) {
+        if (text instanceof CharBuffer) {
+            count((CharBuffer) text);
+            return;
+        }
+        count(text, 0, text.length());
+    }
+
+    /**
+     * Count letters of part of text
+     *
+     * @param text  Text
+     * @param start Index of the first character
+     * @param end   Index after the last character
+     */
+    public void count(CharSequence text, int start, int end) {
+        byte[] slots = alphabet.slots();
+        long[] counts = this.counts;
+        for (int i = start; i < end; i++) {
+            counts[slots[text.charAt(i)]]++;
+        }
+    }
+
+    /**
+     * Count letters of part of array
+     *
+     * @param chars  Characters
+     * @param offset Index of the first character
+     * @param length Number of characters
+     */
+    public void count(char[] chars, int offset, int length) {
+        byte[] slots = alphabet.slots();
+        long[] counts = this.counts;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            counts[slots[chars[i]]]++;
+        }
+    }
+
+    /**
+     * Count letters of remaining characters of buffer. Position of the buffer isn't changed.
+     *
+     * @param buffer Characters
+     */
+    public void count(CharBuffer buffer) {
+        if (buffer.hasArray()) {
+            count(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            return;
+        }
+        byte[] slots = alphabet.slots();
+        long[] counts = this.counts;
+        for (int i = buffer.position(), end = buffer.limit(); i < end; i++) {
+            counts[slots[buffer.get(i)]]++;
+        }
+    }
+
+    /**
+     * Count letters of remaining bytes of single-byte encoding without decoding them. Position of the buffer
+     * isn't changed.
+     *
+     * @param bytes     Encoded text
+     * @param byteSlots Table of {@link Alphabet#byteSlots(java.nio.charset.Charset)}
+     */
+    void count(ByteBuffer bytes, byte[] byteSlots) {
+        long[] counts = this.counts;
+        if (bytes.hasArray()) {
+            byte[] array = bytes.array();
+            for (int i = bytes.arrayOffset() + bytes.position(), end = bytes.arrayOffset() + bytes.limit();
+                 i < end; i++) {
+                counts[byteSlots[array[i] & 0xFF]]++;
+            }
+            return;
+        }
+        for (int i = bytes.position(), end = bytes.limit(); i < end; i++) {
+            counts[byteSlots[bytes.get(i) & 0xFF]]++;
+        }
+    }
+
+    /**
+     * Subtract letters of text which was counted before
+     *
+     * @param text Text
+     * @throws IllegalArgumentException if text contains letters which weren't counted
+     */
+    public void remove(CharSequence text) throws IllegalArgumentException {
+        byte[] slots = alphabet.slots();
+        long[] counts = this.counts;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            counts[slots[text.charAt(i)]]--;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] < 0) {
+                count(text);
+                throw new IllegalArgumentException("Removed text wasn't counted.");
+            }
+        }
+    }
+
+    /**
+     * Reset all counters to zero
+     */
+    public void clear() {
+        Arrays.fill(counts, 0);
+    }
+
+    /**
+     * Add counters of other histogram to this one
+     *
+     * @param other Histogram of the same alphabet
+     */
+    public void add(Histogram other) {
+        if (other.alphabet != alphabet) {
+            throw new IllegalArgumentException("Histograms must have the same alphabet.");
+        }
+        long[] counts = this.counts;
+        long[] others = other.counts;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += others[i];
+        }
+    }
+
+    /**
+     * @param index Position of letter in alphabet
+     * @return Frequency of letter
+     */
+    public long get(int index) {
+        return counts[index + 1];
+    }
+
+    /**
+     * @return Number of counted letters
+     */
+    public long letters() {
+        long sum = 0;
+        for (int i = 1; i < counts.length; i++) {
+            sum += counts[i];
+        }
+        return sum;
+    }
+
+    /**
+     * @return Number of counted characters including non-letters
+     */
+    public long characters() {
+        return letters() + counts[0];
+    }
+
+    public Alphabet getAlphabet() {
+        return alphabet;
+    }
+
+    /**
+     * Counters for reading and writing histograms: {@code counts()[index + 1]} is {@link #get(int)} and
+     * {@code counts()[0]} counts other characters.
+     */
+    long[] counts() {
+        return counts;
+    }
+
+    /**
+     * Read-only view of letters which occur in text
+     *
+     * @return Map of letter and its frequency
+     */
+    public Map<Character, Long> asMap() {
+        return new CountView();
+    }
+
+    private class CountView extends AbstractMap<Character, Long> {
+        @Override
+        public Long get(Object key) {
+            if (!(key instanceof Character)) {
+                return null;
+            }
+            int index = alphabet.indexOf((Character) key);
+            if (index < 0 || alphabet.letterAt(index) != (Character) key || counts[index + 1] == 0) {
+                return null;
+            }
+            return counts[index + 1];
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (int i = 1; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    size++;
+                }
+            }
+            return size;
+        }
+
+        @Override
+        public Set<Entry<Character, Long>> entrySet() {
+            return new AbstractSet<Entry<Character, Long>>() {
+                @Override
+                public Iterator<Entry<Character, Long>> iterator() {
+                    return new Iterator<Entry<Character, Long>>() {
+                        private int next = advance(0);
+
+                        private int advance(int from) {
+                            while (from < alphabet.size() && counts[from + 1] == 0) {
+                                from++;
+                            }
+                            return from;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < alphabet.size();
+                        }
+
+                        @Override
+                        public Entry<Character, Long> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int index = next;
+                            next = advance(next + 1);
+                            return new SimpleImmutableEntry<>(alphabet.letterAt(index), counts[index + 1]);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return CountView.this.size();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Persistent cache of letter histograms of files.
+ * <p>
+ * Histogram depends only on content, encoding and locale of file, so entries are addressed by SHA-256 of
+ * content. Size and modification time of every cached file are kept in index, so unchanged files aren't
+ * hashed again. Entries are {@link HistogramRecord}s and the least recently used entries are deleted when
+ * the cache grows over its size. Methods are thread-safe.
+ *
+ * @author tkaczenko
+ */
+public class HistogramCache {
+    /**
+     * Default size of cache in bytes
+     */
+    public static final long DEFAULT_MAX_SIZE = 4L << 20;
+
+    private static final String INDEX = "index";
+    private static final String SUFFIX = ".hist";
+
+    private final Path directory;
+    private final long maxSize;
+
+    /**
+     * Size, modification time and content hash of every cached file
+     */
+    private final Map<Path, Stamp> stamps = new HashMap<>();
+
+    /**
+     * @param directory Directory of cache, it's created if it doesn't exist
+     * @param maxSize   Maximum size of entries in bytes
+     * @throws IOException if directory can't be created
+     */
+    public HistogramCache(Path directory, long maxSize) throws IOException {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        Files.createDirectories(directory);
+        readIndex();
+    }
+
+    /**
+     * @return Cache in the user's home directory
+     * @throws IOException if directory can't be created
+     */
+    public static HistogramCache openDefault() throws IOException {
+        return new HistogramCache(Paths.get(System.getProperty("user.home"), ".textanalyst", "cache"),
+                DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Find histogram of file
+     *
+     * @param path     File
+     * @param charset  Encoding of file
+     * @param alphabet Alphabet of text
+     * @return Histogram of the whole file or {@code null} if it isn't cached
+     * @throws IOException if file can't be read
+     */
+    public synchronized Histogram get(Path path, Charset charset, Alphabet alphabet) throws IOException {
+        Path entry = directory.resolve(name(hash(path), charset, alphabet));
+        if (!Files.isRegularFile(entry)) {
+            return null;
+        }
+        HistogramRecord record;
+        try {
+            record = HistogramRecord.read(entry);
+        } catch (IllegalArgumentException e) {
+            // Broken entries and entries of older versions are counted again
+            Files.deleteIfExists(entry);
+            return null;
+        }
+        if (record.getHistogram().getAlphabet() != alphabet) {
+            Files.deleteIfExists(entry);
+            return null;
+        }
+        Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        return record.getHistogram();
+    }
+
+    /**
+     * Save histogram of file counted after {@link #get(Path, Charset, Alphabet)} missed it. It isn't saved if size
+     * or modification time of file changed since it was hashed by {@code get}, so histogram of old content
+     * isn't saved under hash of new content and file isn't read again for hashing.
+     *
+     * @param path      File
+     * @param charset   Encoding of file
+     * @param size      Number of counted bytes
+     * @param histogram Histogram of the whole file
+     * @throws IOException if file can't be read or cache can't be written
+     */
+    public synchronized void put(Path path, Charset charset, long size, Histogram histogram) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        Stamp stamp = stamps.get(key);
+        if (stamp == null || stamp.size != size || attributes.size() != size
+                || stamp.modified != attributes.lastModifiedTime().toMillis()) {
+            return;
+        }
+        String hash = stamp.hash;
+        Path entry = directory.resolve(name(hash, charset, histogram.getAlphabet()));
+        Path temp = Files.createTempFile(directory, "entry", ".tmp");
+        new HistogramRecord(histogram, HistogramRecord.unhex(hash), 1).write(temp);
+        Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        evict();
+        writeIndex();
+    }
+
+    /**
+     * Delete all entries
+     *
+     * @throws IOException if entries can't be deleted
+     */
+    public synchronized void clear() throws IOException {
+        for (Path entry : entries()) {
+            Files.deleteIfExists(entry);
+        }
+        stamps.clear();
+        writeIndex();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Find hash of content, file is hashed only if its size or modification time changed
+     */
+    private String hash(Path path) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        long modified = attributes.lastModifiedTime().toMillis();
+        Stamp stamp = stamps.get(key);
+        if (stamp == null || stamp.size != attributes.size() || stamp.modified != modified) {
+            stamp = new Stamp(attributes.size(), modified, digest(key, attributes.size()));
+            stamps.put(key, stamp);
+            writeIndex();
+        }
+        return stamp.hash;
+    }
+
+    private static String digest(Path path, long size) throws IOException {
+        MessageDigest digest = HistogramRecord.sha256();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(ChunkedDecoder.CHUNK_SIZE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (long position = 0; position < size; ) {
+                buffer.limit((int) Math.min(buffer.capacity(), size - position));
+                int read = channel.read(buffer, position);
+                if (read == -1) {
+                    break;
+                }
+                position += read;
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HistogramRecord.hex(digest.digest());
+    }
+
+    private static String name(String hash, Charset charset, Alphabet alphabet) {
+        String encoding = charset.name().toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "_");
+        return hash + '-' + alphabet.getLocale().getLanguage() + '-' + encoding + SUFFIX;
+    }
+
+    /**
+     * Delete the least recently used entries while cache is larger than its maximum size
+     */
+    private void evict() throws IOException {
+        List<Path> entries = entries();
+        Map<Path, BasicFileAttributes> attributes = new HashMap<>();
+        long size = 0;
+        for (Path entry : entries) {
+            BasicFileAttributes attribute = Files.readAttributes(entry, BasicFileAttributes.class);
+            attributes.put(entry, attribute);
+            size += attribute.size();
+        }
+        if (size <= maxSize) {
+            return;
+        }
+        entries.sort(Comparator.comparing(entry -> attributes.get(entry).lastModifiedTime()));
+        for (Path entry : entries) {
+            if (size <= maxSize) {
+                break;
+            }
+            Files.deleteIfExists(entry);
+            size -= attributes.get(entry).size();
+        }
+        // Forget files which content has no entries
+        Set<String> hashes = new HashSet<>();
+        for (Path entry : entries()) {
+            String name = entry.getFileName().toString();
+            hashes.add(name.substring(0, name.indexOf('-')));
+        }
+        stamps.values().removeIf(stamp -> !hashes.contains(stamp.hash));
+    }
+
+    private List<Path> entries() throws IOException {
+        try (Stream<Path> stream = Files.list(directory)) {
+            List<Path> res = new ArrayList<>();
+            stream.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).forEach(res::add);
+            return res;
+        }
+    }
+
+    private void readIndex() throws IOException {
+        Path index = directory.resolve(INDEX);
+        if (!Files.isRegularFile(index)) {
+            return;
+        }
+        for (String line : Files.readAllLines(index, StandardCharsets.UTF_8)) {
+            String[] fields = line.split("\t", 4);
+            if (fields.length < 4) {
+                continue;
+            }
+            try {
+                stamps.put(Paths.get(fields[3]),
+                        new Stamp(Long.parseLong(fields[0]), Long.parseLong(fields[1]), fields[2]));
+            } catch (NumberFormatException | InvalidPathException ignored) {
+                // Broken line is hashed again
+            }
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        List<String> lines = new ArrayList<>(stamps.size());
+        for (Map.Entry<Path, Stamp> entry : stamps.entrySet()) {
+            Stamp stamp = entry.getValue();
+            lines.add(stamp.size + "\t" + stamp.modified + "\t" + stamp.hash + "\t" + entry.getKey());
+        }
+        Path temp = Files.createTempFile(directory, INDEX, ".tmp");
+        Files.write(temp, lines, StandardCharsets.UTF_8);
+        Files.move(temp, directory.resolve(INDEX), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static class Stamp {
+        private final long size;
+        private final long modified;
+        private final String hash;
+
+        Stamp(long size, long modified, String hash) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+        }
+    }
+}
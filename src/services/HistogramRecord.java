@@ -0,0 +1,352 @@
+package services;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Histogram with its metadata in versioned binary format, so histograms of parts of corpus counted on
+ * different machines can be saved and merged.
+ * <p>
+ * Record is {@code int} magic, version byte, language, letters of alphabet, number of merged sources,
+ * SHA-256 of source and counters of histogram including other characters, followed by CRC32 of all of them.
+ * Numbers are variable-length, 7 bits per byte. Records are encoded to and decoded from {@link ByteBuffer}
+ * directly, so records in direct or mapped buffers aren't copied.
+ *
+ * @author tkaczenko
+ */
+public final class HistogramRecord {
+    /**
+     * Version of format written by this class
+     */
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x54414852;
+    private static final int HASH_SIZE = 32;
+
+    private final Histogram histogram;
+    private final byte[] hash;
+    private final long sources;
+
+    /**
+     * @param histogram Histogram of source
+     * @param hash      SHA-256 of source or empty array if it's unknown
+     * @param sources   Number of counted sources, for example files
+     */
+    public HistogramRecord(Histogram histogram, byte[] hash, long sources) {
+        if (hash.length != 0 && hash.length != HASH_SIZE) {
+            throw new IllegalArgumentException("Hash of source must be SHA-256.");
+        }
+        this.histogram = histogram;
+        this.hash = hash.clone();
+        this.sources = sources;
+    }
+
+    /**
+     * Merge histograms of parts of corpus. Result doesn't depend on order of records.
+     *
+     * @param records Records of the same alphabet
+     * @return Record of the whole corpus, its hash is SHA-256 of sorted hashes of records if all of them are known
+     * @throws IllegalArgumentException if there are no records or alphabets of records differ
+     */
+    public static HistogramRecord merge(List<HistogramRecord> records) throws IllegalArgumentException {
+        if (records.isEmpty()) {
+            throw new IllegalArgumentException("There are no histograms to merge.");
+        }
+        Histogram histogram = new Histogram(records.get(0).histogram.getAlphabet());
+        long sources = 0;
+        List<String> hashes = new ArrayList<>(records.size());
+        for (HistogramRecord record : records) {
+            histogram.add(record.histogram);
+            sources += record.sources;
+            hashes.add(record.hash.length == 0 ? null : record.getHashHex());
+        }
+        if (hashes.contains(null)) {
+            return new HistogramRecord(histogram, new byte[0], sources);
+        }
+        Collections.sort(hashes);
+        MessageDigest digest = sha256();
+        for (String hash : hashes) {
+            digest.update(hash.getBytes(StandardCharsets.US_ASCII));
+        }
+        return new HistogramRecord(histogram, digest.digest(), sources);
+    }
+
+    /**
+     * Decode record at position of buffer and move position after it
+     *
+     * @param buffer Encoded record
+     * @return Record
+     * @throws IllegalArgumentException if record is broken, has unknown version or unknown alphabet
+     */
+    public static HistogramRecord read(ByteBuffer buffer) throws IllegalArgumentException {
+        int start = buffer.position();
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("It isn't histogram record.");
+            }
+            int version = buffer.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Version " + version + " of histogram record isn't supported.");
+            }
+            byte[] language = new byte[length(buffer)];
+            buffer.get(language);
+            Alphabet alphabet = Alphabet.forLocale(new Locale(new String(language, StandardCharsets.UTF_8)));
+            if (readLong(buffer) != alphabet.size()) {
+                throw new IllegalArgumentException("Alphabet of histogram record is unknown.");
+            }
+            for (int i = 0; i < alphabet.size(); i++) {
+                if (readLong(buffer) != alphabet.letterAt(i)) {
+                    throw new IllegalArgumentException("Alphabet of histogram record is unknown.");
+                }
+            }
+            long sources = count(buffer);
+            byte[] hash = new byte[length(buffer)];
+            buffer.get(hash);
+            Histogram histogram = new Histogram(alphabet);
+            long[] counts = histogram.counts();
+            if (readLong(buffer) != counts.length) {
+                throw new IllegalArgumentException("Histogram record is broken.");
+            }
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = count(buffer);
+            }
+            int end = buffer.position();
+            if (buffer.getInt() != (int) crc(buffer, start, end)) {
+                throw new IllegalArgumentException("Checksum of histogram record is wrong.");
+            }
+            return new HistogramRecord(histogram, hash, sources);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Histogram record is broken.");
+        }
+    }
+
+    /**
+     * Decode record of file. Record takes about a hundred bytes, so file isn't mapped and can be replaced
+     * or deleted at once.
+     *
+     * @param path File of one record
+     * @return Record
+     * @throws IOException              if file can't be read
+     * @throws IllegalArgumentException if record is broken
+     */
+    public static HistogramRecord read(Path path) throws IOException, IllegalArgumentException {
+        return read(ByteBuffer.wrap(Files.readAllBytes(path)));
+    }
+
+    /**
+     * Encode record at position of buffer and move position after it
+     *
+     * @param buffer Buffer with at least {@link #size()} remaining bytes
+     */
+    public void write(ByteBuffer buffer) {
+        int start = buffer.position();
+        Alphabet alphabet = histogram.getAlphabet();
+        byte[] language = alphabet.getLocale().getLanguage().getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(MAGIC).put((byte) VERSION);
+        writeLong(buffer, language.length);
+        buffer.put(language);
+        writeLong(buffer, alphabet.size());
+        for (int i = 0; i < alphabet.size(); i++) {
+            writeLong(buffer, alphabet.letterAt(i));
+        }
+        writeLong(buffer, sources);
+        writeLong(buffer, hash.length);
+        buffer.put(hash);
+        long[] counts = histogram.counts();
+        writeLong(buffer, counts.length);
+        for (long count : counts) {
+            writeLong(buffer, count);
+        }
+        buffer.putInt((int) crc(buffer, start, buffer.position()));
+    }
+
+    /**
+     * Write record to file, replacing it
+     *
+     * @param path File
+     * @throws IOException if file can't be written
+     */
+    public void write(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size());
+        write(buffer);
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * @return Number of bytes of encoded record
+     */
+    public int size() {
+        Alphabet alphabet = histogram.getAlphabet();
+        int language = alphabet.getLocale().getLanguage().getBytes(StandardCharsets.UTF_8).length;
+        int size = Integer.BYTES + 1 + sizeOf(language) + language + sizeOf(alphabet.size());
+        for (int i = 0; i < alphabet.size(); i++) {
+            size += sizeOf(alphabet.letterAt(i));
+        }
+        size += sizeOf(sources) + sizeOf(hash.length) + hash.length;
+        long[] counts = histogram.counts();
+        size += sizeOf(counts.length);
+        for (long count : counts) {
+            size += sizeOf(count);
+        }
+        return size + Integer.BYTES;
+    }
+
+    public Histogram getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * @return SHA-256 of source or empty array if it's unknown
+     */
+    public byte[] getHash() {
+        return hash.clone();
+    }
+
+    /**
+     * @return SHA-256 of source in lower-case hexadecimal digits like keys of {@link HistogramCache} or empty
+     * string if it's unknown
+     */
+    public String getHashHex() {
+        return hex(hash);
+    }
+
+    public long getSources() {
+        return sources;
+    }
+
+    /**
+     * @return Number of counted characters including non-letters
+     */
+    public long getCharacters() {
+        return histogram.characters();
+    }
+
+    /**
+     * Hash content of file
+     *
+     * @param path File
+     * @return SHA-256 of content
+     * @throws IOException if file can't be read
+     */
+    public static byte[] hash(Path path) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(ChunkedDecoder.CHUNK_SIZE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * @return Lower-case hexadecimal digits of bytes
+     */
+    static String hex(byte[] bytes) {
+        StringBuilder res = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            res.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return res.toString();
+    }
+
+    /**
+     * @param hex Hexadecimal digits
+     * @return Bytes of digits
+     */
+    static byte[] unhex(String hex) {
+        byte[] res = new byte[hex.length() / 2];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = (byte) (Character.digit(hex.charAt(2 * i), 16) << 4 | Character.digit(hex.charAt(2 * i + 1), 16));
+        }
+        return res;
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long crc(ByteBuffer buffer, int start, int end) {
+        ByteBuffer bytes = buffer.duplicate();
+        bytes.limit(end).position(start);
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+    /**
+     * Read length of array which must fit in the rest of buffer
+     */
+    private static int length(ByteBuffer buffer) {
+        long length = readLong(buffer);
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Histogram record is broken.");
+        }
+        return (int) length;
+    }
+
+    /**
+     * Read counter, which is never negative
+     */
+    private static long count(ByteBuffer buffer) {
+        long count = readLong(buffer);
+        if (count < 0) {
+            throw new IllegalArgumentException("Histogram record is broken.");
+        }
+        return count;
+    }
+
+    private static int sizeOf(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Write non-negative number by 7 bits per byte
+     */
+    private static void writeLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long readLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = buffer.get() & 0xFF;
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Histogram record is broken.");
+    }
+}
@@ -0,0 +1,187 @@
+package services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Guess of language of text from a small sample.
+ * <p>
+ * Sample is made of blocks read at even steps through the whole file. Score of language is the share of
+ * letters of sample which belong to its alphabet multiplied by cosine similarity of their frequencies and
+ * built-in frequencies of the language.
+ *
+ * @author tkaczenko
+ */
+public final class LanguageDetector {
+    /**
+     * Score of language which is enough to accept it
+     */
+    public static final double MIN_SCORE = 0.5;
+
+    static final int BLOCKS = 16;
+    static final int BLOCK_SIZE = 4 * 1024;
+
+    private static final Alphabet[] ALPHABETS = {Alphabet.ENGLISH, Alphabet.RUSSIAN, Alphabet.UKRAINIAN};
+
+    /**
+     * Letter frequencies of languages in percents, in order of {@link #ALPHABETS}
+     */
+    private static final double[][] PROFILES = {
+            profile(Alphabet.ENGLISH, "ETAOINSHRDLCUMWFGYPBVKJXQZ",
+                    12.70, 9.06, 8.17, 7.51, 6.97, 6.75, 6.33, 6.09, 5.99, 4.25, 4.03, 2.78, 2.76,
+                    2.41, 2.36, 2.23, 2.02, 1.97, 1.93, 1.49, 0.98, 0.77, 0.15, 0.15, 0.10, 0.07),
+            profile(Alphabet.RUSSIAN, "ОЕАИНТСРВЛКМДПУЯЫЬГЗБЧЙХЖШЮЦЩЭФЪЁ",
+                    10.97, 8.45, 8.01, 7.35, 6.70, 6.26, 5.47, 4.73, 4.54, 4.40, 3.49, 3.21, 2.98,
+                    2.81, 2.62, 2.01, 1.90, 1.74, 1.70, 1.65, 1.59, 1.44, 1.21, 0.97, 0.94, 0.73,
+                    0.64, 0.48, 0.36, 0.32, 0.26, 0.04, 0.04),
+            profile(Alphabet.UKRAINIAN, "ОАНИІТВРЕСКЛУДМПЯЗЬГБЧХЖЙЦЮЇЄШЩФҐ",
+                    9.28, 8.04, 7.30, 6.23, 5.88, 5.56, 5.30, 4.93, 4.80, 4.43, 3.75, 3.68, 3.60,
+                    3.21, 3.12, 2.82, 2.24, 2.12, 1.61, 1.52, 1.48, 1.41, 1.26, 0.94, 0.93, 0.91,
+                    0.86, 0.84, 0.67, 0.63, 0.55, 0.25, 0.01)
+    };
+
+    private LanguageDetector() {
+    }
+
+    private static double[] profile(Alphabet alphabet, String letters, double... percents) {
+        double[] res = new double[alphabet.size()];
+        for (int i = 0; i < letters.length(); i++) {
+            res[alphabet.indexOf(letters.charAt(i))] = percents[i];
+        }
+        return res;
+    }
+
+    /**
+     * @param alphabet Alphabet of known language
+     * @return Probability of every letter of alphabet in texts of its language, they sum to one
+     */
+    static double[] frequencies(Alphabet alphabet) {
+        for (int i = 0; i < ALPHABETS.length; i++) {
+            if (ALPHABETS[i] == alphabet) {
+                double sum = 0;
+                for (double percent : PROFILES[i]) {
+                    sum += percent;
+                }
+                double[] res = new double[alphabet.size()];
+                for (int j = 0; j < res.length; j++) {
+                    res[j] = PROFILES[i][j] / sum;
+                }
+                return res;
+            }
+        }
+        throw new IllegalArgumentException("Letter frequencies of " + alphabet.getLocale() + " are unknown.");
+    }
+
+    /**
+     * Read sample of file: {@link #BLOCKS} blocks at even steps or the whole file if it's small
+     *
+     * @param path    File
+     * @param charset Encoding of file
+     * @return Decoded sample
+     * @throws IOException if file can't be read
+     */
+    public static CharSequence sample(Path path, Charset charset) throws IOException {
+        StringBuilder sample = new StringBuilder();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long step = Math.max(BLOCK_SIZE, size / BLOCKS);
+            ByteBuffer bytes = ByteBuffer.allocate(BLOCK_SIZE);
+            for (long position = 0; position < size; position += step) {
+                bytes.clear();
+                // Even offset keeps code units of UTF-16 whole
+                channel.read(bytes, position & ~1L);
+                bytes.flip();
+                CharBuffer chars = ChunkedDecoder.newDecoder(charset).decode(bytes);
+                sample.append(chars).append('\n');
+            }
+        }
+        return sample;
+    }
+
+    /**
+     * Score every known language
+     *
+     * @param sample Text
+     * @return Score from {@code 0} to {@code 1} by locale of language
+     */
+    public static Map<Locale, Double> score(CharSequence sample) {
+        long[][] counts = new long[ALPHABETS.length][];
+        for (int i = 0; i < ALPHABETS.length; i++) {
+            counts[i] = new long[ALPHABETS[i].size()];
+        }
+        long letters = 0;
+        for (int i = 0; i < sample.length(); i++) {
+            char c = sample.charAt(i);
+            if (!Character.isLetter(c)) {
+                continue;
+            }
+            letters++;
+            for (int j = 0; j < ALPHABETS.length; j++) {
+                int index = ALPHABETS[j].indexOf(c);
+                if (index >= 0) {
+                    counts[j][index]++;
+                }
+            }
+        }
+        Map<Locale, Double> res = new LinkedHashMap<>();
+        for (int i = 0; i < ALPHABETS.length; i++) {
+            res.put(ALPHABETS[i].getLocale(), letters == 0 ? 0 : score(counts[i], PROFILES[i], letters));
+        }
+        return res;
+    }
+
+    private static double score(long[] counts, double[] profile, long letters) {
+        double product = 0;
+        double countNorm = 0;
+        double profileNorm = 0;
+        long known = 0;
+        for (int i = 0; i < counts.length; i++) {
+            product += counts[i] * profile[i];
+            countNorm += (double) counts[i] * counts[i];
+            profileNorm += profile[i] * profile[i];
+            known += counts[i];
+        }
+        if (known == 0) {
+            return 0;
+        }
+        return (double) known / letters * product / Math.sqrt(countNorm * profileNorm);
+    }
+
+    /**
+     * Find language of text
+     *
+     * @param sample Text
+     * @return Locale of language with the best score or {@code null} if no language has {@link #MIN_SCORE}
+     */
+    public static Locale detect(CharSequence sample) {
+        Locale res = null;
+        double best = MIN_SCORE;
+        for (Map.Entry<Locale, Double> entry : score(sample).entrySet()) {
+            if (entry.getValue() >= best) {
+                res = entry.getKey();
+                best = entry.getValue();
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Find language of file from its sample
+     *
+     * @param path    File
+     * @param charset Encoding of file
+     * @return Locale of language or {@code null} if it's unknown
+     * @throws IOException if file can't be read
+     */
+    public static Locale detect(Path path, Charset charset) throws IOException {
+        return detect(sample(path, charset));
+    }
+}
@@ -0,0 +1,270 @@
+package services;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process registry of timings of analysis phases and amount of processed text.
+ * <p>
+ * Counters are {@link LongAdder}s, so threads don't contend on them. Metrics are switched off by system
+ * property {@code -Dtextanalyst.metrics=false}, then every call returns at once and JIT removes it.
+ * Registry is published by {@link #register()} as MBean {@value #NAME}.
+ *
+ * @author tkaczenko
+ */
+public final class Metrics {
+    /**
+     * Name of MBean
+     */
+    public static final String NAME = "textanalyst:type=Metrics";
+
+    /**
+     * Whether metrics are recorded
+     */
+    public static final boolean ENABLED = !"false".equals(System.getProperty("textanalyst.metrics"));
+
+    public enum Phase {
+        /**
+         * Reading and indexing of file before it's shown
+         */
+        READ,
+        /**
+         * Splitting of file into chunks counted in parallel
+         */
+        SPLIT,
+        /**
+         * Decoding and counting of letters
+         */
+        COUNT,
+        /**
+         * Calculation of ranges
+         */
+        BUCKET,
+        /**
+         * Building of coloured text and results
+         */
+        RENDER
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+    private static final LongAdder[] CALLS = adders();
+    private static final LongAdder[] NANOS = adders();
+    private static final LongAccumulator[] MAX_NANOS = new LongAccumulator[PHASES.length];
+    private static final LongAdder BYTES = new LongAdder();
+    private static final LongAdder CHARS = new LongAdder();
+    private static volatile int parallelism = 1;
+
+    static {
+        for (int i = 0; i < MAX_NANOS.length; i++) {
+            MAX_NANOS[i] = new LongAccumulator(Math::max, 0);
+        }
+    }
+
+    private Metrics() {
+    }
+
+    private static LongAdder[] adders() {
+        LongAdder[] res = new LongAdder[Phase.values().length];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = new LongAdder();
+        }
+        return res;
+    }
+
+    /**
+     * @return Start time of phase for {@link #record(Phase, long)}
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Record duration of phase
+     *
+     * @param phase Phase
+     * @param start Time returned by {@link #start()}
+     */
+    public static void record(Phase phase, long start) {
+        if (ENABLED) {
+            long nanos = System.nanoTime() - start;
+            CALLS[phase.ordinal()].increment();
+            NANOS[phase.ordinal()].add(nanos);
+            MAX_NANOS[phase.ordinal()].accumulate(nanos);
+        }
+    }
+
+    /**
+     * Record amount of counted text
+     *
+     * @param bytes Number of bytes, {@code 0} if text wasn't read from bytes
+     * @param chars Number of characters
+     */
+    public static void processed(long bytes, long chars) {
+        if (ENABLED) {
+            BYTES.add(bytes);
+            CHARS.add(chars);
+        }
+    }
+
+    /**
+     * @param threads Number of threads counting the last text
+     */
+    public static void parallelism(int threads) {
+        if (ENABLED) {
+            parallelism = threads;
+        }
+    }
+
+    /**
+     * @param phase Phase
+     * @return Number of finished phases
+     */
+    public static long calls(Phase phase) {
+        return CALLS[phase.ordinal()].sum();
+    }
+
+    /**
+     * @param phase Phase
+     * @return Total time of phase in nanoseconds
+     */
+    public static long nanos(Phase phase) {
+        return NANOS[phase.ordinal()].sum();
+    }
+
+    /**
+     * @param phase Phase
+     * @return The longest phase in nanoseconds
+     */
+    public static long maxNanos(Phase phase) {
+        return MAX_NANOS[phase.ordinal()].get();
+    }
+
+    public static long bytes() {
+        return BYTES.sum();
+    }
+
+    public static long chars() {
+        return CHARS.sum();
+    }
+
+    public static int parallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return Counted bytes per second of counting
+     */
+    public static double throughput() {
+        long nanos = nanos(Phase.COUNT);
+        return nanos == 0 ? 0 : bytes() * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    /**
+     * @return All metrics by name, for example {@code count.nanos}
+     */
+    public static Map<String, Number> snapshot() {
+        Map<String, Number> res = new LinkedHashMap<>();
+        for (Phase phase : PHASES) {
+            String name = phase.name().toLowerCase(Locale.ROOT);
+            res.put(name + ".calls", calls(phase));
+            res.put(name + ".nanos", nanos(phase));
+            res.put(name + ".maxNanos", maxNanos(phase));
+        }
+        res.put("bytes", bytes());
+        res.put("chars", chars());
+        res.put("throughput", throughput());
+        res.put("parallelism", parallelism());
+        return res;
+    }
+
+    /**
+     * Reset all metrics to zero
+     */
+    public static void reset() {
+        for (int i = 0; i < PHASES.length; i++) {
+            CALLS[i].reset();
+            NANOS[i].reset();
+            MAX_NANOS[i].reset();
+        }
+        BYTES.reset();
+        CHARS.reset();
+    }
+
+    /**
+     * Register MBean in platform MBean server, it's registered only once
+     */
+    public static synchronized void register() {
+        if (!ENABLED) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), new ObjectName(NAME));
+        } catch (InstanceAlreadyExistsException ignored) {
+            // Registered before
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Bean implements MetricsMXBean {
+        @Override
+        public Map<String, Long> getPhaseCalls() {
+            Map<String, Long> res = new LinkedHashMap<>();
+            for (Phase phase : PHASES) {
+                res.put(phase.name(), calls(phase));
+            }
+            return res;
+        }
+
+        @Override
+        public Map<String, Long> getPhaseMillis() {
+            Map<String, Long> res = new LinkedHashMap<>();
+            for (Phase phase : PHASES) {
+                res.put(phase.name(), TimeUnit.NANOSECONDS.toMillis(nanos(phase)));
+            }
+            return res;
+        }
+
+        @Override
+        public Map<String, Long> getPhaseMaxMillis() {
+            Map<String, Long> res = new LinkedHashMap<>();
+            for (Phase phase : PHASES) {
+                res.put(phase.name(), TimeUnit.NANOSECONDS.toMillis(maxNanos(phase)));
+            }
+            return res;
+        }
+
+        @Override
+        public long getBytes() {
+            return bytes();
+        }
+
+        @Override
+        public long getChars() {
+            return chars();
+        }
+
+        @Override
+        public double getThroughput() {
+            return throughput();
+        }
+
+        @Override
+        public int getParallelism() {
+            return parallelism();
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+}
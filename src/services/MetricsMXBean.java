@@ -0,0 +1,47 @@
+package services;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link Metrics}
+ *
+ * @author tkaczenko
+ */
+public interface MetricsMXBean {
+    /**
+     * @return Number of finished phases by name of phase
+     */
+    Map<String, Long> getPhaseCalls();
+
+    /**
+     * @return Total time of phases in milliseconds by name of phase
+     */
+    Map<String, Long> getPhaseMillis();
+
+    /**
+     * @return The longest phase in milliseconds by name of phase
+     */
+    Map<String, Long> getPhaseMaxMillis();
+
+    /**
+     * @return Number of counted bytes
+     */
+    long getBytes();
+
+    /**
+     * @return Number of counted characters
+     */
+    long getChars();
+
+    /**
+     * @return Counted bytes per second of counting
+     */
+    double getThroughput();
+
+    /**
+     * @return Number of threads counting the last text
+     */
+    int getParallelism();
+
+    void reset();
+}
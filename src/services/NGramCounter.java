@@ -0,0 +1,253 @@
+package services;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Counter of sequences of {@code n} letters inside words.
+ * <p>
+ * Words are split by whitespace, other characters which aren't letters are skipped like
+ * {@code splitWords()} did. N-gram is packed into {@code long} key: positions of its letters in alphabet
+ * are digits of number in base of alphabet size. Counters are dense array for {@code n <= 3} and
+ * open-addressing hash table of primitive keys for longer n-grams. Text may be passed by chunks.
+ *
+ * @author tkaczenko
+ */
+public class NGramCounter {
+    /**
+     * Length of the longest n-gram which key fits in {@code long}
+     */
+    public static final int MAX_GRAM_SIZE = 12;
+
+    /**
+     * Length of the longest n-gram counted by dense array
+     */
+    static final int MAX_DENSE_GRAM_SIZE = 3;
+
+    private static final long EMPTY = -1;
+
+    private final Alphabet alphabet;
+    private final int gramSize;
+
+    /**
+     * Number of all (n-1)-grams, the oldest letter is dropped from key modulo it before the next letter is
+     * added, so key never overflows and keys are less than number of all n-grams
+     */
+    private final long prefixes;
+
+    /**
+     * Counters of all n-grams if {@code gramSize <= MAX_DENSE_GRAM_SIZE}
+     */
+    private long[] dense;
+
+    /**
+     * Keys and counters of found n-grams if {@code gramSize > MAX_DENSE_GRAM_SIZE}
+     */
+    private long[] tableKeys;
+    private long[] tableCounts;
+    private int tableSize;
+
+    /**
+     * Key of the last letters of current word
+     */
+    private long key;
+
+    /**
+     * Number of letters of current word
+     */
+    private int length;
+
+    public NGramCounter(Alphabet alphabet, int gramSize) {
+        if (gramSize < 1 || gramSize > MAX_GRAM_SIZE) {
+            throw new IllegalArgumentException("Size of n-gram must be from 1 to " + MAX_GRAM_SIZE + ".");
+        }
+        this.alphabet = alphabet;
+        this.gramSize = gramSize;
+        long keys = 1;
+        for (int i = 0; i < gramSize; i++) {
+            keys *= alphabet.size();
+        }
+        this.prefixes = keys / alphabet.size();
+        if (gramSize <= MAX_DENSE_GRAM_SIZE) {
+            dense = new long[(int) keys];
+        } else {
+            tableKeys = new long[1024];
+            tableCounts = new long[1024];
+            Arrays.fill(tableKeys, EMPTY);
+        }
+    }
+
+    /**
+     * Count n-grams of the next chunk of text
+     *
+     * @param text Chunk of text
+     */
+    public void count(CharSequence text) {
+        if (text instanceof CharBuffer) {
+            CharBuffer buffer = (CharBuffer) text;
+            if (buffer.hasArray()) {
+                count(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                return;
+            }
+        }
+        for (int i = 0, end = text.length(); i < end; i++) {
+            next(text.charAt(i));
+        }
+    }
+
+    /**
+     * Count n-grams of the next chunk of text
+     *
+     * @param chars  Characters
+     * @param offset Index of the first character
+     * @param length Number of characters
+     */
+    public void count(char[] chars, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            next(chars[i]);
+        }
+    }
+
+    /**
+     * End current word, so the next chunk of text doesn't continue it
+     */
+    public void endWord() {
+        length = 0;
+    }
+
+    private void next(char c) {
+        int index = alphabet.slots()[c] - 1;
+        if (index >= 0) {
+            key = key % prefixes * alphabet.size() + index;
+            if (++length >= gramSize) {
+                increment(key);
+            }
+        } else if (isWhitespace(c)) {
+            length = 0;
+        }
+    }
+
+    /**
+     * Separators of {@code \s} regular expression
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private void increment(long key) {
+        if (dense != null) {
+            dense[(int) key]++;
+            return;
+        }
+        int slot = find(key);
+        if (tableKeys[slot] == EMPTY) {
+            tableKeys[slot] = key;
+            if (++tableSize * 2 > tableKeys.length) {
+                rehash();
+                slot = find(key);
+            }
+        }
+        tableCounts[slot]++;
+    }
+
+    private int find(long key) {
+        int mask = tableKeys.length - 1;
+        int slot = mix(key) & mask;
+        while (tableKeys[slot] != EMPTY && tableKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void rehash() {
+        long[] oldKeys = tableKeys;
+        long[] oldCounts = tableCounts;
+        tableKeys = new long[oldKeys.length * 2];
+        tableCounts = new long[oldKeys.length * 2];
+        Arrays.fill(tableKeys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = find(oldKeys[i]);
+                tableKeys[slot] = oldKeys[i];
+                tableCounts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    /**
+     * @param key Key of n-gram
+     * @return Frequency of n-gram
+     */
+    public long get(long key) {
+        if (dense != null) {
+            return dense[(int) key];
+        }
+        int slot = find(key);
+        return tableKeys[slot] == EMPTY ? 0 : tableCounts[slot];
+    }
+
+    /**
+     * @return Keys of n-grams which occur in text in ascending order
+     */
+    public long[] keys() {
+        long[] res;
+        int size = 0;
+        if (dense != null) {
+            res = new long[dense.length];
+            for (int i = 0; i < dense.length; i++) {
+                if (dense[i] != 0) {
+                    res[size++] = i;
+                }
+            }
+        } else {
+            res = new long[tableSize];
+            for (long key : tableKeys) {
+                if (key != EMPTY) {
+                    res[size++] = key;
+                }
+            }
+            Arrays.sort(res);
+        }
+        return Arrays.copyOf(res, size);
+    }
+
+    /**
+     * @param key Key of n-gram
+     * @return Upper-case letters of n-gram
+     */
+    public String label(long key) {
+        char[] letters = new char[gramSize];
+        for (int i = gramSize - 1; i >= 0; i--) {
+            letters[i] = alphabet.letterAt((int) (key % alphabet.size()));
+            key /= alphabet.size();
+        }
+        return new String(letters);
+    }
+
+    /**
+     * Forget all counted n-grams
+     */
+    public void clear() {
+        if (dense != null) {
+            Arrays.fill(dense, 0);
+        } else {
+            Arrays.fill(tableKeys, EMPTY);
+            Arrays.fill(tableCounts, 0);
+            tableSize = 0;
+        }
+        length = 0;
+    }
+
+    public int getGramSize() {
+        return gramSize;
+    }
+
+    public Alphabet getAlphabet() {
+        return alphabet;
+    }
+}
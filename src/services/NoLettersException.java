@@ -0,0 +1,26 @@
+package services;
+
+import java.util.Locale;
+
+/**
+ * Text has no letters of language of analysis, it's detected wrong or chosen for text of another language.
+ *
+ * @author tkaczenko
+ */
+public class NoLettersException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    private final Locale locale;
+
+    /**
+     * @param locale Language of analysis
+     */
+    public NoLettersException(Locale locale) {
+        super("Text has no letters of " + locale.getDisplayLanguage(Locale.ENGLISH) + ".");
+        this.locale = locale;
+    }
+
+    public Locale getLocale() {
+        return locale;
+    }
+}
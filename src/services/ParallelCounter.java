@@ -0,0 +1,318 @@
+package services;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parallel letter counting in {@link ForkJoinPool}.
+ * <p>
+ * File is split into byte ranges which start at character boundaries. Every range is counted into
+ * its own {@link Histogram} and histograms are merged by array addition, so workers never share
+ * counters. Bytes of single-byte encodings are counted through a byte table without decoding.
+ *
+ * @author tkaczenko
+ */
+public class ParallelCounter implements AutoCloseable {
+    /**
+     * Smallest part of file or text counted by one task
+     */
+    static final int MIN_CHUNK_SIZE = 1 << 20;
+
+    /**
+     * Largest part of file counted by one task
+     */
+    static final int MAX_CHUNK_SIZE = 1 << 28;
+
+    /**
+     * Number of chunks per worker, it lets fast workers steal work from slow ones
+     */
+    private static final int CHUNKS_PER_WORKER = 8;
+
+    private final ForkJoinPool pool;
+    private final boolean ownPool;
+
+    /**
+     * @param parallelism Number of worker threads
+     */
+    public ParallelCounter(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.ownPool = true;
+    }
+
+    /**
+     * @param pool Pool which isn't shut down by {@link #close()}
+     */
+    public ParallelCounter(ForkJoinPool pool) {
+        this.pool = pool;
+        this.ownPool = false;
+    }
+
+    /**
+     * Count letters of file
+     *
+     * @param path     File
+     * @param charset  Encoding of file
+     * @param alphabet Alphabet of text
+     * @return Histogram of the whole file
+     * @throws IOException if file can't be read
+     */
+    public Histogram count(Path path, Charset charset, Alphabet alphabet) throws IOException {
+        return count(path, charset, alphabet, ProgressMonitor.NONE);
+    }
+
+    /**
+     * Count letters of file reporting number of counted bytes
+     *
+     * @param path     File
+     * @param charset  Encoding of file
+     * @param alphabet Alphabet of text
+     * @param monitor  Monitor of counting
+     * @return Histogram of the whole file
+     * @throws IOException if file can't be read
+     */
+    public Histogram count(Path path, Charset charset, Alphabet alphabet,
+                           ProgressMonitor monitor) throws IOException {
+        if (!isSplittable(charset)) {
+            Histogram histogram = new Histogram(alphabet);
+            TextSource.of(path, charset).read(histogram::count, monitor);
+            return histogram;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return count(channel, channel.size(), charset, alphabet, monitor);
+        }
+    }
+
+    /**
+     * Count letters of the beginning of file
+     *
+     * @param channel  Channel of file
+     * @param length   Number of bytes to count, it must end at character boundary
+     * @param charset  Encoding of file, it must be {@link #isSplittable(Charset) splittable}
+     * @param alphabet Alphabet of text
+     * @param monitor  Monitor of counting
+     * @return Histogram of {@code length} first bytes
+     * @throws IOException if file can't be read
+     */
+    public Histogram count(FileChannel channel, long length, Charset charset, Alphabet alphabet,
+                           ProgressMonitor monitor) throws IOException {
+        try {
+            Metrics.parallelism(pool.getParallelism());
+            long start = Metrics.start();
+            long[] bounds = split(channel, length, charset);
+            Metrics.record(Metrics.Phase.SPLIT, start);
+            Progress progress = new Progress(monitor, length);
+            return pool.invoke(new FileTask(channel, charset, alphabet, progress, bounds, 0, bounds.length - 1));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Count letters of text
+     *
+     * @param text     Text
+     * @param alphabet Alphabet of text
+     * @return Histogram of the whole text
+     */
+    public Histogram count(CharSequence text, Alphabet alphabet) {
+        int chunkSize = chunkSize(text.length());
+        Metrics.parallelism(pool.getParallelism());
+        return pool.invoke(new TextTask(text, alphabet, chunkSize, 0, text.length()));
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    @Override
+    public void close() {
+        if (ownPool) {
+            pool.shutdown();
+        }
+    }
+
+    private int chunkSize(long size) {
+        long chunkSize = size / ((long) pool.getParallelism() * CHUNKS_PER_WORKER);
+        return (int) Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, chunkSize));
+    }
+
+    /**
+     * Find start offsets of chunks
+     *
+     * @return Offsets of chunks, the last element is size of file
+     */
+    private long[] split(FileChannel channel, long size, Charset charset) throws IOException {
+        int chunkSize = chunkSize(size);
+        int step = charset.newEncoder().maxBytesPerChar() == 2.0f ? 2 : 1;
+        long[] bounds = new long[(int) (size / chunkSize) + 2];
+        int count = 1;
+        ByteBuffer head = ByteBuffer.allocate(4);
+        for (long position = chunkSize; position < size; position += chunkSize) {
+            long bound = position - position % step;
+            if (charset.equals(StandardCharsets.UTF_8)) {
+                bound = alignUtf8(channel, bound, head);
+            }
+            if (bound > bounds[count - 1] && bound < size) {
+                bounds[count++] = bound;
+            }
+        }
+        bounds[count++] = size;
+        long[] res = new long[count];
+        System.arraycopy(bounds, 0, res, 0, count);
+        return res;
+    }
+
+    /**
+     * Move offset forward to the first byte which isn't continuation of UTF-8 sequence
+     */
+    private static long alignUtf8(FileChannel channel, long position, ByteBuffer head) throws IOException {
+        head.clear();
+        channel.read(head, position);
+        head.flip();
+        int shift = 0;
+        while (shift < head.limit() && (head.get(shift) & 0xC0) == 0x80) {
+            shift++;
+        }
+        return position + shift;
+    }
+
+    /**
+     * Character boundaries can be found from bytes only for single-byte encodings, UTF-8 and
+     * fixed two-byte encodings
+     */
+    static boolean isSplittable(Charset charset) {
+        return ChunkedDecoder.isSingleByte(charset) || charset.equals(StandardCharsets.UTF_8)
+                || charset.equals(StandardCharsets.UTF_16BE) || charset.equals(StandardCharsets.UTF_16LE);
+    }
+
+    /**
+     * Number of bytes counted by all tasks
+     */
+    private static class Progress {
+        private final ProgressMonitor monitor;
+        private final AtomicLong done = new AtomicLong();
+        private final long total;
+
+        Progress(ProgressMonitor monitor, long total) {
+            this.monitor = monitor;
+            this.total = total;
+        }
+
+        void worked(long bytes) {
+            monitor.worked(done.addAndGet(bytes), total);
+        }
+    }
+
+    private static class FileTask extends RecursiveTask<Histogram> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final Charset charset;
+        private final Alphabet alphabet;
+        private final Progress progress;
+        private final long[] bounds;
+        private final int from;
+        private final int to;
+
+        FileTask(FileChannel channel, Charset charset, Alphabet alphabet, Progress progress,
+                 long[] bounds, int from, int to) {
+            this.channel = channel;
+            this.charset = charset;
+            this.alphabet = alphabet;
+            this.progress = progress;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Histogram compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                FileTask right = new FileTask(channel, charset, alphabet, progress, bounds, middle, to);
+                right.fork();
+                Histogram histogram = new FileTask(channel, charset, alphabet, progress, bounds, from, middle)
+                        .compute();
+                histogram.add(right.join());
+                return histogram;
+            }
+            progress.monitor.checkCancelled();
+            Histogram histogram = new Histogram(alphabet);
+            long size = bounds[to] - bounds[from];
+            try {
+                count(channel.map(FileChannel.MapMode.READ_ONLY, bounds[from], size), histogram);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            progress.worked(size);
+            return histogram;
+        }
+
+        private void count(MappedByteBuffer bytes, Histogram histogram) {
+            if (ChunkedDecoder.isSingleByte(charset)) {
+                // Bytes are counted without creating chars
+                byte[] byteSlots = alphabet.byteSlots(charset);
+                for (int position = 0; position < bytes.capacity(); position += ChunkedDecoder.CHUNK_SIZE) {
+                    progress.monitor.checkCancelled();
+                    bytes.limit(Math.min(bytes.capacity(), position + ChunkedDecoder.CHUNK_SIZE)).position(position);
+                    histogram.count(bytes, byteSlots);
+                }
+                return;
+            }
+            CharsetDecoder decoder = ChunkedDecoder.newDecoder(charset);
+            CharBuffer chars = CharBuffer.allocate(ChunkedDecoder.CHUNK_SIZE);
+            ChunkedDecoder.decode(decoder, bytes, chars, true, chunk -> {
+                progress.monitor.checkCancelled();
+                histogram.count(chunk);
+            });
+            decoder.flush(chars);
+            chars.flip();
+            histogram.count(chars);
+        }
+    }
+
+    private static class TextTask extends RecursiveTask<Histogram> {
+        private static final long serialVersionUID = 1L;
+
+        private final CharSequence text;
+        private final Alphabet alphabet;
+        private final int chunkSize;
+        private final int start;
+        private final int end;
+
+        TextTask(CharSequence text, Alphabet alphabet, int chunkSize, int start, int end) {
+            this.text = text;
+            this.alphabet = alphabet;
+            this.chunkSize = chunkSize;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Histogram compute() {
+            if (end - start > chunkSize) {
+                int middle = (start + end) >>> 1;
+                TextTask right = new TextTask(text, alphabet, chunkSize, middle, end);
+                right.fork();
+                Histogram histogram = new TextTask(text, alphabet, chunkSize, start, middle).compute();
+                histogram.add(right.join());
+                return histogram;
+            }
+            Histogram histogram = new Histogram(alphabet);
+            histogram.count(text, start, end);
+            return histogram;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package services;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Receiver of progress of long analysis, it's also asked whether analysis must be stopped.
+ * Methods may be called from several threads at once.
+ *
+ * @author tkaczenko
+ */
+public interface ProgressMonitor {
+    /**
+     * Monitor which ignores progress and never cancels
+     */
+    ProgressMonitor NONE = new ProgressMonitor() {
+        @Override
+        public void worked(long done, long total) {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+    };
+
+    /**
+     * @param done  Number of processed bytes or characters
+     * @param total Number of all bytes or characters, {@code -1} if it's unknown
+     */
+    void worked(long done, long total);
+
+    boolean isCancelled();
+
+    /**
+     * Stop analysis if it's cancelled
+     *
+     * @throws CancellationException if analysis is cancelled
+     */
+    default void checkCancelled() throws CancellationException {
+        if (isCancelled()) {
+            throw new CancellationException("Analysis is cancelled.");
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package services;
+
+import java.util.Arrays;
+
+/**
+ * Ranges of frequencies. Range {@code 0} holds the most frequent items.
+ * <p>
+ * Range of every item is found by index arithmetic in one pass, without comparing it with every range.
+ *
+ * @author tkaczenko
+ */
+public final class Ranges {
+    /**
+     * Way of splitting frequencies into ranges
+     */
+    public enum Strategy {
+        /**
+         * Ranges of equal width between minimum and maximum frequency
+         */
+        EQUAL_WIDTH,
+        /**
+         * Ranges of about equal number of items
+         */
+        QUANTILE,
+        /**
+         * Ranges of equal width of logarithms of frequencies, so rare items aren't put into one range
+         */
+        LOG_SCALE
+    }
+
+    private final Strategy strategy;
+    private final int numOfRange;
+    private final long maxFrequency;
+    private final long minFrequency;
+    private final double delta;
+
+    /**
+     * Range of every item, {@code -1} for items which don't occur
+     */
+    private final int[] ranges;
+
+    private Ranges(Strategy strategy, int numOfRange, long maxFrequency, long minFrequency, double delta,
+                   int[] ranges) {
+        this.strategy = strategy;
+        this.numOfRange = numOfRange;
+        this.maxFrequency = maxFrequency;
+        this.minFrequency = minFrequency;
+        this.delta = delta;
+        this.ranges = ranges;
+    }
+
+    /**
+     * Split frequencies into ranges of equal width
+     *
+     * @param frequencies Frequency of every item, items with zero frequency get no range
+     * @param numOfRange  Number of ranges
+     * @return Ranges of items
+     * @throws IllegalArgumentException if all frequencies are zero
+     */
+    public static Ranges of(long[] frequencies, int numOfRange) throws IllegalArgumentException {
+        return of(frequencies, numOfRange, Strategy.EQUAL_WIDTH);
+    }
+
+    /**
+     * Split frequencies into ranges
+     *
+     * @param frequencies Frequency of every item, items with zero frequency get no range
+     * @param numOfRange  Number of ranges
+     * @param strategy    Way of splitting
+     * @return Ranges of items
+     * @throws IllegalArgumentException if all frequencies are zero
+     */
+    public static Ranges of(long[] frequencies, int numOfRange, Strategy strategy) throws IllegalArgumentException {
+        if (numOfRange < 1) {
+            throw new IllegalArgumentException("Number of ranges must be positive.");
+        }
+        long maxFrequency = 0;
+        long minFrequency = Long.MAX_VALUE;
+        int items = 0;
+        for (long frequency : frequencies) {
+            if (frequency != 0) {
+                maxFrequency = Math.max(maxFrequency, frequency);
+                minFrequency = Math.min(minFrequency, frequency);
+                items++;
+            }
+        }
+        if (maxFrequency == 0) {
+            throw new IllegalArgumentException("There are no items to split into ranges.");
+        }
+
+        int[] ranges = new int[frequencies.length];
+        Arrays.fill(ranges, -1);
+        double delta;
+        switch (strategy) {
+            case QUANTILE:
+                delta = (double) items / numOfRange;
+                quantile(frequencies, items, numOfRange, ranges);
+                break;
+            case LOG_SCALE:
+                delta = (Math.log(maxFrequency) - Math.log(minFrequency)) / numOfRange;
+                for (int i = 0; i < frequencies.length; i++) {
+                    if (frequencies[i] != 0) {
+                        ranges[i] = range(Math.log(maxFrequency) - Math.log(frequencies[i]), delta, numOfRange);
+                    }
+                }
+                break;
+            default:
+                delta = (double) (maxFrequency - minFrequency) / numOfRange;
+                for (int i = 0; i < frequencies.length; i++) {
+                    if (frequencies[i] != 0) {
+                        ranges[i] = range(maxFrequency - frequencies[i], delta, numOfRange);
+                    }
+                }
+                break;
+        }
+        return new Ranges(strategy, numOfRange, maxFrequency, minFrequency, delta, ranges);
+    }
+
+    /**
+     * @param distance Distance from maximum frequency
+     * @param delta    Width of range
+     */
+    private static int range(double distance, double delta, int numOfRange) {
+        if (delta <= 0) {
+            return 0;
+        }
+        return Math.min(numOfRange - 1, (int) (distance / delta));
+    }
+
+    /**
+     * Range of item is the share of items which are more frequent, so equal frequencies share range
+     */
+    private static void quantile(long[] frequencies, int items, int numOfRange, int[] ranges) {
+        long[] sorted = new long[items];
+        int size = 0;
+        for (long frequency : frequencies) {
+            if (frequency != 0) {
+                sorted[size++] = frequency;
+            }
+        }
+        Arrays.sort(sorted);
+        for (int i = 0; i < frequencies.length; i++) {
+            if (frequencies[i] != 0) {
+                long greater = items - upperBound(sorted, frequencies[i]);
+                ranges[i] = (int) (greater * numOfRange / items);
+            }
+        }
+    }
+
+    /**
+     * @return Index of the first element greater than value
+     */
+    private static int upperBound(long[] sorted, long value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] <= value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param index Index of item
+     * @return Range of item or {@code -1} if it has no range
+     */
+    public int get(int index) {
+        return ranges[index];
+    }
+
+    /**
+     * @return Number of items
+     */
+    public int size() {
+        return ranges.length;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    public int getNumOfRange() {
+        return numOfRange;
+    }
+
+    public long getMaxFrequency() {
+        return maxFrequency;
+    }
+
+    public long getMinFrequency() {
+        return minFrequency;
+    }
+
+    /**
+     * @return Width of range: frequency for {@link Strategy#EQUAL_WIDTH}, logarithm of frequency for
+     * {@link Strategy#LOG_SCALE} and number of items for {@link Strategy#QUANTILE}
+     */
+    public double getDelta() {
+        return delta;
+    }
+}
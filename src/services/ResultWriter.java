@@ -0,0 +1,217 @@
+package services;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Writer of analysis results as CSV rows or JSON lines. Every result is flushed at once, so results
+ * are streamed while other texts are analysed. Methods are thread-safe.
+ *
+ * @author tkaczenko
+ */
+public class ResultWriter {
+    public enum Format {
+        /**
+         * Row {@code source,letter,count,range} for every letter
+         */
+        CSV,
+        /**
+         * One JSON object per text
+         */
+        JSON
+    }
+
+    /**
+     * Number of the most frequent words of JSON object by default
+     */
+    public static final int TOP_WORDS = 20;
+
+    private final Writer out;
+    private final Format format;
+    private int topWords = TOP_WORDS;
+    private boolean header;
+
+    public ResultWriter(Writer out, Format format) {
+        this.out = out;
+        this.format = format;
+    }
+
+    /**
+     * Write histogram and ranges of analysed text
+     *
+     * @param source  Name of text
+     * @param analyst Service which analysed text
+     * @throws IOException if result can't be written
+     */
+    public void write(String source, AnalystService analyst) throws IOException {
+        write(source, analyst.result());
+    }
+
+    /**
+     * Write histogram and ranges of analysed text
+     *
+     * @param source Name of text
+     * @param result Result of analysis
+     * @throws IOException if result can't be written
+     */
+    public synchronized void write(String source, AnalysisResult result) throws IOException {
+        if (format == Format.CSV) {
+            writeCsv(source, result);
+        } else {
+            out.write(toJson(source, result, topWords));
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    private void writeCsv(String source, AnalysisResult result) throws IOException {
+        if (!header) {
+            out.write("source,letter,count,range\n");
+            header = true;
+        }
+        Histogram histogram = result.getHistogram();
+        Alphabet alphabet = histogram.getAlphabet();
+        Map<Character, Integer> ranges = result.getRanges();
+        String name = csv(source);
+        for (int i = 0; i < alphabet.size(); i++) {
+            char letter = alphabet.letterAt(i);
+            Integer range = ranges.get(letter);
+            out.write(name + ',' + letter + ',' + histogram.get(i) + ',' + (range == null ? "" : range) + '\n');
+        }
+    }
+
+    /**
+     * @param topWords Number of the most frequent words of JSON object if words are counted
+     */
+    public void setTopWords(int topWords) {
+        this.topWords = topWords;
+    }
+
+    /**
+     * Format result as one-line JSON object
+     *
+     * @param source  Name of text
+     * @param analyst Service which analysed text
+     * @return JSON object
+     */
+    public static String toJson(String source, AnalystService analyst) {
+        return toJson(source, analyst, TOP_WORDS);
+    }
+
+    /**
+     * Format result as one-line JSON object
+     *
+     * @param source   Name of text
+     * @param analyst  Service which analysed text
+     * @param topWords Number of the most frequent words if words are counted
+     * @return JSON object
+     */
+    public static String toJson(String source, AnalystService analyst, int topWords) {
+        return toJson(source, analyst.result(), topWords);
+    }
+
+    /**
+     * Format result as one-line JSON object
+     *
+     * @param source   Name of text
+     * @param result   Result of analysis
+     * @param topWords Number of the most frequent words if words are counted
+     * @return JSON object
+     */
+    public static String toJson(String source, AnalysisResult result, int topWords) {
+        Histogram histogram = result.getHistogram();
+        Alphabet alphabet = histogram.getAlphabet();
+        Map<Character, Integer> ranges = result.getRanges();
+        StringBuilder json = new StringBuilder(1024);
+        json.append("{\"source\":").append(json(source))
+                .append(",\"locale\":").append(json(alphabet.getLocale().getLanguage()))
+                .append(",\"letters\":").append(histogram.letters())
+                .append(",\"maxFrequency\":").append(result.getMaxFrequency())
+                .append(",\"minFrequency\":").append(result.getMinFrequency())
+                .append(",\"delta\":").append(result.getDelta())
+                .append(",\"histogram\":{");
+        for (int i = 0; i < alphabet.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('"').append(alphabet.letterAt(i)).append("\":").append(histogram.get(i));
+        }
+        json.append("},\"ranges\":{");
+        boolean first = true;
+        for (int i = 0; i < alphabet.size(); i++) {
+            Integer range = ranges.get(alphabet.letterAt(i));
+            if (range != null) {
+                json.append(first ? "" : ",").append('"').append(alphabet.letterAt(i)).append("\":").append(range);
+                first = false;
+            }
+        }
+        json.append('}');
+        Map<Character, Long> errors = result.getErrorBounds();
+        if (!errors.isEmpty()) {
+            // Estimated frequencies of approximate analysis
+            json.append(",\"fractionRead\":").append(result.getFractionRead()).append(",\"errors\":{");
+            first = true;
+            for (Map.Entry<Character, Long> entry : errors.entrySet()) {
+                json.append(first ? "" : ",").append('"').append(entry.getKey()).append("\":").append(entry.getValue());
+                first = false;
+            }
+            json.append('}');
+        }
+        if (result.hasWords()) {
+            // Words with maximum overestimation of their frequencies
+            json.append(",\"words\":").append(result.getWordTotal()).append(",\"topWords\":[");
+            first = true;
+            for (WordCounter.Word word : result.getTopWords(topWords)) {
+                json.append(first ? "" : ",").append("{\"word\":").append(json(word.getWord()))
+                        .append(",\"count\":").append(word.getCount())
+                        .append(",\"error\":").append(word.getError()).append('}');
+                first = false;
+            }
+            json.append(']');
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * @param value String
+     * @return JSON string literal
+     */
+    public static String json(String value) {
+        StringBuilder res = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    res.append("\\\"");
+                    break;
+                case '\\':
+                    res.append("\\\\");
+                    break;
+                case '\n':
+                    res.append("\\n");
+                    break;
+                case '\r':
+                    res.append("\\r");
+                    break;
+                case '\t':
+                    res.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        res.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        res.append(c);
+                    }
+            }
+        }
+        return res.append('"').toString();
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
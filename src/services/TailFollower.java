@@ -0,0 +1,236 @@
+package services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Incremental analysis of growing file.
+ * <p>
+ * Every {@link #poll()} counts letters and n-grams of only bytes appended since the previous one and adds
+ * them to {@link AnalystService}. Bytes of incomplete character at the end of file are kept until the rest of
+ * the character is written. File which became shorter or was rewritten is counted again from the start: it's
+ * rewritten if it was modified without growing or if the first or the last block of counted bytes changed.
+ * Histogram of the whole file is taken from cache of {@link AnalystService} at the first poll.
+ *
+ * @author tkaczenko
+ */
+public class TailFollower {
+    /**
+     * Size of the first and the last block of counted bytes which are hashed to find changes before the end
+     */
+    private static final int CHECKED_BLOCK = 64 * 1024;
+
+    private final AnalystService analyst;
+    private final Path path;
+    private final Charset charset;
+    private final CharsetDecoder decoder;
+
+    /**
+     * Bytes read from file but not decoded yet
+     */
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(ChunkedDecoder.CHUNK_SIZE);
+    private final CharBuffer chars = CharBuffer.allocate(ChunkedDecoder.CHUNK_SIZE);
+
+    /**
+     * Number of bytes read from file
+     */
+    private long position;
+
+    /**
+     * Modification time of file and hash of blocks of counted bytes, {@code null} before the first poll
+     */
+    private FileTime modified;
+    private byte[] fingerprint;
+
+    public TailFollower(AnalystService analyst, Path path, Charset charset) {
+        this.analyst = analyst;
+        this.path = path;
+        this.charset = charset;
+        this.decoder = ChunkedDecoder.newDecoder(charset);
+    }
+
+    /**
+     * Count bytes appended to file since the previous call
+     *
+     * @return Number of new bytes
+     * @throws IOException if file can't be read
+     */
+    public long poll() throws IOException {
+        return poll(ProgressMonitor.NONE);
+    }
+
+    /**
+     * Count bytes appended to file since the previous call. If counting is cancelled, nothing is
+     * added to analysis, but the follower must be {@link #reset()} before it's used again.
+     *
+     * @param monitor Monitor of counting
+     * @return Number of new bytes
+     * @throws IOException if file can't be read
+     */
+    public long poll(ProgressMonitor monitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // Time is taken before reading, so file written while it's read is checked again by the next poll
+            FileTime time = Files.getLastModifiedTime(path);
+            long size = channel.size();
+            if (position > 0 && isRewritten(channel, size, time)) {
+                reset();
+            }
+            long start = position;
+            long startTime = Metrics.start();
+            long cachedBytes = 0;
+            long cachedChars = 0;
+            Histogram delta = new Histogram(analyst.getAlphabet());
+            NGramCounter grams = analyst.getGrams();
+            Consumer<CharBuffer> consumer = grams == null ? delta::count : chunk -> {
+                delta.count(chunk);
+                grams.count(chunk);
+            };
+            HistogramCache cache = grams == null && ParallelCounter.isSplittable(charset)
+                    ? analyst.getCache() : null;
+            if (position == 0 && cache != null && completeLength(channel, size) == size) {
+                Histogram cached = cache.get(path, charset, delta.getAlphabet());
+                if (cached != null) {
+                    delta.add(cached);
+                    position = size;
+                    cachedBytes = size;
+                    cachedChars = cached.characters();
+                    cache = null;
+                }
+            }
+            if (position == 0 && grams == null && analyst.getParallelism() > 1
+                    && ParallelCounter.isSplittable(charset)) {
+                long length = completeLength(channel, size);
+                try (ParallelCounter counter = new ParallelCounter(analyst.getParallelism())) {
+                    delta.add(counter.count(channel, length, charset, delta.getAlphabet(), monitor));
+                }
+                position = length;
+            }
+            byte[] byteSlots = grams == null && ChunkedDecoder.isSingleByte(charset)
+                    ? delta.getAlphabet().byteSlots(charset) : null;
+            channel.position(position);
+            while (channel.read(bytes) > 0) {
+                monitor.checkCancelled();
+                bytes.flip();
+                if (byteSlots != null) {
+                    delta.count(bytes, byteSlots);
+                    bytes.clear();
+                    monitor.worked(channel.position() - start, size - start);
+                    continue;
+                }
+                ChunkedDecoder.decode(decoder, bytes, chars, false, consumer);
+                bytes.compact();
+                chars.flip();
+                consumer.accept(chars);
+                chars.clear();
+                monitor.worked(channel.position() - start, size - start);
+            }
+            position = channel.position();
+            modified = time;
+            fingerprint = fingerprint(channel, position);
+            if (start == 0 && cache != null && position > 0 && bytes.position() == 0) {
+                cache.put(path, charset, position, delta);
+            }
+            if (position - start > cachedBytes) {
+                Metrics.record(Metrics.Phase.COUNT, startTime);
+                Metrics.processed(position - start - cachedBytes, delta.characters() - cachedChars);
+            }
+            analyst.add(delta);
+            return position - start;
+        }
+    }
+
+    /**
+     * Forget counted letters, the next {@link #poll()} counts the whole file
+     */
+    public void reset() {
+        analyst.clear();
+        position = 0;
+        modified = null;
+        fingerprint = null;
+        bytes.clear();
+        decoder.reset();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Check whether counted bytes were changed. Changes in the middle of large file which is appended at the
+     * same time aren't found, only its first and last blocks are hashed.
+     */
+    private boolean isRewritten(FileChannel channel, long size, FileTime time) throws IOException {
+        if (size < position) {
+            return true;
+        }
+        if (size == position) {
+            return !time.equals(modified);
+        }
+        return !Arrays.equals(fingerprint, fingerprint(channel, position));
+    }
+
+    /**
+     * Hash the first and the last block of {@code length} bytes of file
+     */
+    private static byte[] fingerprint(FileChannel channel, long length) throws IOException {
+        MessageDigest digest = HistogramRecord.sha256();
+        ByteBuffer block = ByteBuffer.allocate(CHECKED_BLOCK);
+        update(digest, channel, block, 0, Math.min(length, CHECKED_BLOCK));
+        if (length > CHECKED_BLOCK) {
+            long start = Math.max(CHECKED_BLOCK, length - CHECKED_BLOCK);
+            update(digest, channel, block, start, length);
+        }
+        return digest.digest();
+    }
+
+    private static void update(MessageDigest digest, FileChannel channel, ByteBuffer block, long start, long end)
+            throws IOException {
+        block.clear();
+        block.limit((int) (end - start));
+        while (block.hasRemaining() && channel.read(block, start + block.position()) > 0) {
+            // Read the whole block
+        }
+        block.flip();
+        digest.update(block);
+    }
+
+    /**
+     * Find length of file without incomplete character at its end
+     */
+    private long completeLength(FileChannel channel, long size) throws IOException {
+        if (charset.equals(StandardCharsets.UTF_8)) {
+            ByteBuffer tail = ByteBuffer.allocate(4);
+            long start = Math.max(0, size - tail.capacity());
+            channel.read(tail, start);
+            for (int i = tail.position() - 1; i >= 0; i--) {
+                int b = tail.get(i) & 0xFF;
+                if ((b & 0xC0) != 0x80) {
+                    int length = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : b >= 0xC0 ? 2 : 1;
+                    return tail.position() - i >= length ? size : start + i;
+                }
+            }
+            return size;
+        }
+        return size - size % Math.round(charset.newEncoder().maxBytesPerChar());
+    }
+}
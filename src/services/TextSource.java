@@ -0,0 +1,83 @@
+package services;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Text which is read by chunks of characters, so the whole text never has to be in memory
+ *
+ * @author tkaczenko
+ */
+@FunctionalInterface
+public interface TextSource {
+    /**
+     * Pass every chunk of text to consumer. The buffer is reused after the consumer returns.
+     *
+     * @param consumer Consumer of chunks
+     * @throws IOException if text can't be read
+     */
+    void read(Consumer<CharBuffer> consumer) throws IOException;
+
+    /**
+     * Pass every chunk of text to consumer, report number of read characters to monitor and stop
+     * reading when it's cancelled
+     *
+     * @param consumer Consumer of chunks
+     * @param monitor  Monitor of reading
+     * @throws IOException if text can't be read
+     */
+    default void read(Consumer<CharBuffer> consumer, ProgressMonitor monitor) throws IOException {
+        long[] done = {0};
+        read(chunk -> {
+            monitor.checkCancelled();
+            done[0] += chunk.remaining();
+            consumer.accept(chunk);
+            monitor.worked(done[0], -1);
+        });
+    }
+
+    /**
+     * @param path    File
+     * @param charset Encoding of file
+     * @return Source decoding file by fixed-size chunks
+     */
+    static FileSource of(Path path, Charset charset) {
+        return new FileSource(path, charset);
+    }
+
+    /**
+     * @param channel Channel, it isn't closed by source
+     * @param charset Encoding of channel
+     * @return Source decoding channel by fixed-size chunks
+     */
+    static TextSource of(ReadableByteChannel channel, Charset charset) {
+        return consumer -> ChunkedDecoder.decode(channel, charset, consumer);
+    }
+
+    /**
+     * @param reader Reader, it isn't closed by source
+     * @return Source reading by fixed-size chunks
+     */
+    static TextSource of(Reader reader) {
+        return consumer -> ChunkedDecoder.read(reader, consumer);
+    }
+
+    /**
+     * @param strings Lines of text
+     * @return Source passing every line and its line separator as chunks, so words don't continue on the next line
+     */
+    static TextSource of(List<String> strings) {
+        return consumer -> {
+            for (String line : strings) {
+                consumer.accept(CharBuffer.wrap(line));
+                consumer.accept(CharBuffer.wrap("\n"));
+            }
+        };
+    }
+}
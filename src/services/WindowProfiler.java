@@ -0,0 +1,355 @@
+package services;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Letter frequencies of sliding windows of text, counted in one pass.
+ * <p>
+ * Window is the last {@code size} letters or lines, and it's passed to consumer every {@code step} letters or
+ * lines. Letters leaving the window are kept in a ring, so moving the window subtracts them from counters and
+ * adds new ones instead of counting the window again. Every window is scored by Jensen-Shannon divergence from
+ * a reference profile, by default letter frequencies of the language, so windows of other language or
+ * ciphertext stand out. One {@link Window} is reused for all windows, nothing is allocated per window.
+ *
+ * @author tkaczenko
+ */
+public class WindowProfiler {
+    public enum Unit {
+        /**
+         * Window of letters of alphabet, other characters are skipped
+         */
+        LETTERS,
+        /**
+         * Window of lines, its letters are counted
+         */
+        LINES
+    }
+
+    private static final double LOG_2 = Math.log(2);
+
+    private final Alphabet alphabet;
+    private final Unit unit;
+    private final int size;
+    private final int step;
+    private final Consumer<Window> consumer;
+
+    /**
+     * Probability of every letter in reference profile
+     */
+    private double[] reference;
+
+    /**
+     * Counters of window by alphabet slot, like {@link Histogram#counts()}
+     */
+    private final long[] counts;
+    private final Histogram total;
+
+    /**
+     * Slots of letters of window if unit is letters
+     */
+    private final byte[] letterRing;
+
+    /**
+     * Counters of lines of window if unit is lines
+     */
+    private final long[][] lineRing;
+
+    /**
+     * Counters of the current line if unit is lines
+     */
+    private final long[] line;
+
+    /**
+     * Offset of the first character of every unit of window
+     */
+    private final long[] starts;
+
+    private int head;
+    private int filled;
+    private int sinceWindow;
+    private long letters;
+    private long position;
+    private long lineStart;
+
+    /**
+     * Offset after the last unit
+     */
+    private long unitEnd;
+    private final Window window = new Window();
+
+    /**
+     * @param alphabet Alphabet of text
+     * @param unit     Unit of size and step
+     * @param size     Number of units of window
+     * @param step     Number of units between starts of windows
+     * @param consumer Consumer of windows, the window is reused after it returns
+     */
+    public WindowProfiler(Alphabet alphabet, Unit unit, int size, int step, Consumer<Window> consumer) {
+        if (size < 1 || step < 1) {
+            throw new IllegalArgumentException("Size and step of window must be positive.");
+        }
+        this.alphabet = alphabet;
+        this.unit = unit;
+        this.size = size;
+        this.step = step;
+        this.consumer = consumer;
+        this.reference = LanguageDetector.frequencies(alphabet);
+        this.counts = new long[alphabet.size() + 1];
+        this.total = new Histogram(alphabet);
+        this.starts = new long[size];
+        if (unit == Unit.LETTERS) {
+            letterRing = new byte[size];
+            lineRing = null;
+            line = null;
+        } else {
+            letterRing = null;
+            lineRing = new long[size][alphabet.size() + 1];
+            line = new long[alphabet.size() + 1];
+        }
+    }
+
+    /**
+     * Score windows by divergence from frequencies of text instead of frequencies of language, for example of
+     * the whole text counted before
+     *
+     * @param reference Histogram of the same alphabet with letters
+     */
+    public void setReference(Histogram reference) {
+        if (reference.getAlphabet() != alphabet || reference.letters() == 0) {
+            throw new IllegalArgumentException("Reference must have letters of the same alphabet.");
+        }
+        double[] res = new double[alphabet.size()];
+        double letters = reference.letters();
+        for (int i = 0; i < res.length; i++) {
+            res[i] = reference.get(i) / letters;
+        }
+        this.reference = res;
+    }
+
+    /**
+     * Count text and pass its windows to consumer
+     *
+     * @param source  Text
+     * @param monitor Monitor of reading
+     * @return Histogram of the whole text
+     * @throws IOException if text can't be read
+     */
+    public Histogram profile(TextSource source, ProgressMonitor monitor) throws IOException {
+        source.read(this::count, monitor);
+        end();
+        return getTotal();
+    }
+
+    /**
+     * Count the next chunk of text
+     *
+     * @param text Chunk of text
+     */
+    public void count(CharSequence text) {
+        if (text instanceof CharBuffer) {
+            CharBuffer buffer = (CharBuffer) text;
+            if (buffer.hasArray()) {
+                count(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                return;
+            }
+        }
+        for (int i = 0, end = text.length(); i < end; i++) {
+            next(text.charAt(i));
+        }
+    }
+
+    /**
+     * Count the next chunk of text
+     *
+     * @param chars  Characters
+     * @param offset Index of the first character
+     * @param length Number of characters
+     */
+    public void count(char[] chars, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            next(chars[i]);
+        }
+    }
+
+    /**
+     * End text: the last line is counted even without line break, text shorter than one window is passed
+     * as one window, and units after the last window are passed in the last {@code size} units, so the end of
+     * text is always covered
+     */
+    public void end() {
+        if (unit == Unit.LINES && position > lineStart) {
+            endLine();
+        }
+        if (letters > 0 && (window.index == 0 || sinceWindow > 0)) {
+            emit();
+        }
+    }
+
+    private void next(char c) {
+        int slot = alphabet.slots()[c];
+        if (unit == Unit.LETTERS) {
+            if (slot != 0) {
+                addLetter(slot);
+            }
+        } else {
+            line[slot]++;
+            if (c == '\n') {
+                endLine();
+            }
+        }
+        position++;
+    }
+
+    private void addLetter(int slot) {
+        if (filled == size) {
+            counts[letterRing[head]]--;
+        } else {
+            filled++;
+            letters++;
+        }
+        letterRing[head] = (byte) slot;
+        starts[head] = position;
+        unitEnd = position + 1;
+        head = head + 1 == size ? 0 : head + 1;
+        counts[slot]++;
+        total.counts()[slot]++;
+        unitAdded();
+    }
+
+    private void endLine() {
+        long[] leaving = lineRing[head];
+        if (filled == size) {
+            for (int i = 1; i < counts.length; i++) {
+                counts[i] -= leaving[i];
+                letters -= leaving[i];
+            }
+        } else {
+            filled++;
+        }
+        long[] totals = total.counts();
+        for (int i = 1; i < counts.length; i++) {
+            counts[i] += line[i];
+            letters += line[i];
+            totals[i] += line[i];
+        }
+        totals[0] += line[0];
+        System.arraycopy(line, 0, leaving, 0, line.length);
+        Arrays.fill(line, 0);
+        starts[head] = lineStart;
+        head = head + 1 == size ? 0 : head + 1;
+        unitEnd = position;
+        lineStart = position + 1;
+        unitAdded();
+    }
+
+    private void unitAdded() {
+        sinceWindow++;
+        if (filled == size && (window.index == 0 || sinceWindow >= step)) {
+            emit();
+        }
+    }
+
+    private void emit() {
+        // The oldest unit is at head when the ring is full
+        window.start = starts[filled == size ? head : 0];
+        window.end = unitEnd;
+        window.index++;
+        sinceWindow = 0;
+        consumer.accept(window);
+    }
+
+    /**
+     * @return Histogram of all counted text
+     */
+    public Histogram getTotal() {
+        if (unit == Unit.LETTERS) {
+            // Other characters aren't counted letter by letter
+            total.counts()[0] = position - total.letters();
+        }
+        return total;
+    }
+
+    public Alphabet getAlphabet() {
+        return alphabet;
+    }
+
+    /**
+     * Current window. It's valid only while consumer is called.
+     */
+    public class Window {
+        private long index;
+        private long start;
+        private long end;
+
+        /**
+         * @return Number of window from {@code 1}
+         */
+        public long getIndex() {
+            return index;
+        }
+
+        /**
+         * @return Offset of the first character of window in text
+         */
+        public long getStart() {
+            return start;
+        }
+
+        /**
+         * @return Offset after the last character of window in text
+         */
+        public long getEnd() {
+            return end;
+        }
+
+        /**
+         * @return Number of letters of window
+         */
+        public long letters() {
+            return letters;
+        }
+
+        /**
+         * @param index Position of letter in alphabet
+         * @return Frequency of letter in window
+         */
+        public long get(int index) {
+            return counts[index + 1];
+        }
+
+        /**
+         * @return Jensen-Shannon divergence of letter frequencies of window from reference profile, from
+         * {@code 0} for the same frequencies to {@code 1} for letters which never occur in reference
+         */
+        public double getDivergence() {
+            if (letters == 0) {
+                return 0;
+            }
+            double sum = 0;
+            for (int i = 0; i < reference.length; i++) {
+                double p = counts[i + 1] / (double) letters;
+                double q = reference[i];
+                double m = (p + q) / 2;
+                if (p > 0) {
+                    sum += p * Math.log(p / m);
+                }
+                if (q > 0) {
+                    sum += q * Math.log(q / m);
+                }
+            }
+            return sum / 2 / LOG_2;
+        }
+
+        /**
+         * @return Copy of counters of window which can be kept
+         */
+        public Histogram toHistogram() {
+            Histogram res = new Histogram(alphabet);
+            System.arraycopy(counts, 1, res.counts(), 1, alphabet.size());
+            return res;
+        }
+    }
+}
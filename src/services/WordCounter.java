@@ -0,0 +1,435 @@
+package services;
+
+import java.nio.CharBuffer;
+import java.util.*;
+
+/**
+ * Counter of word frequencies in bounded memory.
+ * <p>
+ * Words are split by whitespace and other characters which aren't letters are skipped, like
+ * {@code splitWords()} did, and letters are normalized to letters of {@link Alphabet}. Exact counter keeps
+ * every word in a map. Sketch counter keeps the most frequent words in Space-Saving summary and counts all
+ * words in Count-Min sketch with conservative update, so frequency of reported word is between
+ * {@link Word#getCount()} minus {@link Word#getError()} and {@link Word#getCount()}. Text may be passed
+ * by chunks.
+ *
+ * @author tkaczenko
+ */
+public class WordCounter {
+    /**
+     * Memory of sketch counter by default
+     */
+    public static final int DEFAULT_MEMORY = 4 * 1024 * 1024;
+
+    /**
+     * Letters of longer words are ignored
+     */
+    static final int MAX_WORD_LENGTH = 64;
+
+    /**
+     * Number of rows of Count-Min sketch, probability of larger error than {@link #getErrorBound()} is
+     * {@code e^-DEPTH}
+     */
+    private static final int DEPTH = 4;
+
+    /**
+     * Approximate memory of one word of Space-Saving summary with its map entry
+     */
+    private static final int ENTRY_BYTES = 128;
+
+    private final Alphabet alphabet;
+
+    /**
+     * Counters of all words if counting is exact
+     */
+    private final Map<String, long[]> exact;
+
+    /**
+     * Counters of Count-Min sketch, row after row, if counting isn't exact
+     */
+    private final long[] sketch;
+    private final int widthMask;
+    private final SpaceSaving summary;
+
+    private final char[] word = new char[MAX_WORD_LENGTH];
+    private int length;
+    private long total;
+
+    private WordCounter(Alphabet alphabet, int memory) {
+        this.alphabet = alphabet;
+        if (memory == 0) {
+            exact = new HashMap<>();
+            sketch = null;
+            widthMask = 0;
+            summary = null;
+            return;
+        }
+        int width = Integer.highestOneBit(Math.max(64, memory / 2 / (DEPTH * Long.BYTES)));
+        exact = null;
+        sketch = new long[DEPTH * width];
+        widthMask = width - 1;
+        summary = new SpaceSaving(Math.max(16, memory / 2 / ENTRY_BYTES));
+    }
+
+    private WordCounter(WordCounter other) {
+        this.alphabet = other.alphabet;
+        if (other.exact != null) {
+            exact = new HashMap<>(other.exact.size() * 2);
+            for (Map.Entry<String, long[]> entry : other.exact.entrySet()) {
+                exact.put(entry.getKey(), entry.getValue().clone());
+            }
+        } else {
+            exact = null;
+        }
+        sketch = other.sketch == null ? null : other.sketch.clone();
+        widthMask = other.widthMask;
+        summary = other.summary == null ? null : new SpaceSaving(other.summary);
+        System.arraycopy(other.word, 0, word, 0, other.length);
+        length = other.length;
+        total = other.total;
+    }
+
+    /**
+     * @param alphabet Alphabet of text
+     * @return Counter which keeps every word, it's for small texts
+     */
+    public static WordCounter exact(Alphabet alphabet) {
+        return new WordCounter(alphabet, 0);
+    }
+
+    /**
+     * @param alphabet Alphabet of text
+     * @param memory   Approximate number of bytes of counters, half of it is taken by sketch and half by
+     *                 the most frequent words
+     * @return Counter of estimated frequencies
+     */
+    public static WordCounter sketch(Alphabet alphabet, int memory) {
+        if (memory <= 0) {
+            throw new IllegalArgumentException("Memory of word counter must be positive.");
+        }
+        return new WordCounter(alphabet, memory);
+    }
+
+    /**
+     * Count words of the next chunk of text
+     *
+     * @param text Chunk of text
+     */
+    public void count(CharSequence text) {
+        if (text instanceof CharBuffer) {
+            CharBuffer buffer = (CharBuffer) text;
+            if (buffer.hasArray()) {
+                count(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                return;
+            }
+        }
+        for (int i = 0, end = text.length(); i < end; i++) {
+            next(text.charAt(i));
+        }
+    }
+
+    /**
+     * Count words of the next chunk of text
+     *
+     * @param chars  Characters
+     * @param offset Index of the first character
+     * @param length Number of characters
+     */
+    public void count(char[] chars, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            next(chars[i]);
+        }
+    }
+
+    /**
+     * Count current word, so the next chunk of text doesn't continue it. It's called at the end of text.
+     */
+    public void endWord() {
+        if (length == 0) {
+            return;
+        }
+        String key = new String(word, 0, length);
+        length = 0;
+        total++;
+        if (exact != null) {
+            exact.computeIfAbsent(key, k -> new long[1])[0]++;
+        } else {
+            increment(key);
+            summary.offer(key);
+        }
+    }
+
+    private void next(char c) {
+        int index = alphabet.slots()[c] - 1;
+        if (index >= 0) {
+            if (length < MAX_WORD_LENGTH) {
+                word[length++] = alphabet.letterAt(index);
+            }
+        } else if (c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r') {
+            endWord();
+        }
+    }
+
+    /**
+     * Conservative update: only the smallest counters of word are increased
+     */
+    private void increment(String key) {
+        long hash = hash(key);
+        int width = widthMask + 1;
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, sketch[row * width + column(hash, row)]);
+        }
+        for (int row = 0; row < DEPTH; row++) {
+            int cell = row * width + column(hash, row);
+            if (sketch[cell] == min) {
+                sketch[cell] = min + 1;
+            }
+        }
+    }
+
+    private long estimate(String key) {
+        long hash = hash(key);
+        int width = widthMask + 1;
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, sketch[row * width + column(hash, row)]);
+        }
+        return min;
+    }
+
+    /**
+     * Column of row from two halves of one hash
+     */
+    private int column(long hash, int row) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return (h1 + row * h2) & widthMask;
+    }
+
+    private static long hash(String key) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * Most frequent words
+     *
+     * @param k Number of words
+     * @return At most {@code k} words in descending order of frequency
+     */
+    public List<Word> top(int k) {
+        List<Word> res = new ArrayList<>();
+        if (exact != null) {
+            for (Map.Entry<String, long[]> entry : exact.entrySet()) {
+                res.add(new Word(entry.getKey(), entry.getValue()[0], 0));
+            }
+        } else {
+            for (int i = 0; i < summary.size; i++) {
+                // Both structures overestimate, the smaller estimate is closer
+                long count = Math.min(summary.counts[i], estimate(summary.words[i]));
+                long lower = summary.counts[i] - summary.errors[i];
+                res.add(new Word(summary.words[i], count, count - lower));
+            }
+        }
+        res.sort(Comparator.comparingLong(Word::getCount).reversed().thenComparing(Word::getWord));
+        return res.size() > k ? new ArrayList<>(res.subList(0, k)) : res;
+    }
+
+    /**
+     * @param word Word of letters of alphabet
+     * @return Frequency of word, overestimated by at most {@link #getErrorBound()} if counting isn't exact
+     */
+    public long get(String word) {
+        if (exact != null) {
+            long[] count = exact.get(word);
+            return count == null ? 0 : count[0];
+        }
+        return estimate(word);
+    }
+
+    /**
+     * @return Number of counted words
+     */
+    public long total() {
+        return total;
+    }
+
+    /**
+     * @return Error of frequency estimated by sketch which isn't exceeded with probability {@code 1 - e^-4}:
+     * {@code e / width} of all words, {@code 0} if counting is exact
+     */
+    public long getErrorBound() {
+        return exact != null ? 0 : (long) Math.ceil(Math.E / (widthMask + 1) * total);
+    }
+
+    public boolean isExact() {
+        return exact != null;
+    }
+
+    public Alphabet getAlphabet() {
+        return alphabet;
+    }
+
+    /**
+     * @return Counter with the same words, it's counted independently of this one
+     */
+    public WordCounter copy() {
+        return new WordCounter(this);
+    }
+
+    /**
+     * Forget all counted words
+     */
+    public void clear() {
+        length = 0;
+        total = 0;
+        if (exact != null) {
+            exact.clear();
+        } else {
+            Arrays.fill(sketch, 0);
+            summary.clear();
+        }
+    }
+
+    /**
+     * Word and its frequency
+     */
+    public static class Word {
+        private final String word;
+        private final long count;
+        private final long error;
+
+        Word(String word, long count, long error) {
+            this.word = word;
+            this.count = count;
+            this.error = error;
+        }
+
+        public String getWord() {
+            return word;
+        }
+
+        /**
+         * @return Frequency of word, it isn't less than the real one
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return Maximum overestimation of frequency, {@code 0} if it's exact
+         */
+        public long getError() {
+            return error;
+        }
+    }
+
+    /**
+     * Space-Saving summary of fixed number of words. Words are kept in min-heap by count, so the least frequent
+     * one is replaced by new word in {@code O(log capacity)}.
+     */
+    private static class SpaceSaving {
+        private final Map<String, Integer> positions;
+        private final String[] words;
+        private final long[] counts;
+
+        /**
+         * Count of replaced word which new word inherited
+         */
+        private final long[] errors;
+        private int size;
+
+        SpaceSaving(int capacity) {
+            positions = new HashMap<>(capacity * 2);
+            words = new String[capacity];
+            counts = new long[capacity];
+            errors = new long[capacity];
+        }
+
+        SpaceSaving(SpaceSaving other) {
+            positions = new HashMap<>(other.positions);
+            words = other.words.clone();
+            counts = other.counts.clone();
+            errors = other.errors.clone();
+            size = other.size;
+        }
+
+        void offer(String word) {
+            Integer position = positions.get(word);
+            if (position != null) {
+                counts[position]++;
+                siftDown(position);
+            } else if (size < words.length) {
+                set(size, word, 1, 0);
+                siftUp(size++);
+            } else {
+                positions.remove(words[0]);
+                set(0, word, counts[0] + 1, counts[0]);
+                siftDown(0);
+            }
+        }
+
+        private void set(int position, String word, long count, long error) {
+            words[position] = word;
+            counts[position] = count;
+            errors[position] = error;
+            positions.put(word, position);
+        }
+
+        private void siftUp(int position) {
+            while (position > 0) {
+                int parent = (position - 1) >>> 1;
+                if (counts[parent] <= counts[position]) {
+                    break;
+                }
+                swap(parent, position);
+                position = parent;
+            }
+        }
+
+        private void siftDown(int position) {
+            while (true) {
+                int child = 2 * position + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && counts[child + 1] < counts[child]) {
+                    child++;
+                }
+                if (counts[position] <= counts[child]) {
+                    break;
+                }
+                swap(position, child);
+                position = child;
+            }
+        }
+
+        private void swap(int i, int j) {
+            String word = words[i];
+            long count = counts[i];
+            long error = errors[i];
+            words[i] = words[j];
+            counts[i] = counts[j];
+            errors[i] = errors[j];
+            words[j] = word;
+            counts[j] = count;
+            errors[j] = error;
+            positions.put(words[i], i);
+            positions.put(words[j], j);
+        }
+
+        void clear() {
+            positions.clear();
+            Arrays.fill(words, null);
+            Arrays.fill(counts, 0);
+            Arrays.fill(errors, 0);
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package services;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author tkaczenko
+ */
+public class CryptanalystTest {
+    private static final String ENGLISH = "It was late in the autumn when the old miller decided to leave the valley. "
+            + "For forty years he had ground the grain of every farm between the river and the hills, and he knew "
+            + "each family by the sound of their carts on the stone bridge. The mill had been built by his father, "
+            + "who came from the north with nothing but a bag of tools and a stubborn belief that water would "
+            + "always find a way to work for a patient man. Now the wheel turned slowly, the beams were tired, and "
+            + "the young people had gone to the towns where the factories paid in silver rather than in flour. "
+            + "On the last evening he walked along the bank and listened to the water, which had not changed at "
+            + "all. It still spoke in the same low voice, it still carried leaves and branches toward the sea, and "
+            + "it still did not care who stood beside it. He thought about the winter of the great flood, when the "
+            + "whole village slept in the church and the bells rang every hour so that nobody would forget that "
+            + "the others were alive. He thought about his wife, who had laughed at him for talking to the wheel as "
+            + "if it were a horse, and about his daughter, who now wrote letters from a city he had never seen. "
+            + "When the sun went down behind the hills he returned to the house, lit the lamp and began to pack the "
+            + "few things he wanted to keep: a knife, a clock that no longer worked, a book of prayers and a small "
+            + "drawing of the mill made by a traveller many years ago. In the morning a neighbour came with a wagon "
+            + "and they drove together along the road that followed the river. Neither of them spoke much. At the "
+            + "top of the hill the miller asked him to stop, and he looked back for a long time at the roof, the "
+            + "wheel and the thin line of smoke that still rose from the chimney because he had forgotten to put "
+            + "out the fire. Then he said that it was good, that the house would stay warm for a while, and that "
+            + "somebody else would surely come to live there before the snow. The neighbour nodded, touched the "
+            + "horses with the whip, and the wagon moved on toward the town, where the streets were loud and "
+            + "bright and where nobody knew the sound of his cart on the bridge.";
+
+    private static final String RUSSIAN = "Поздней осенью старый мельник решил покинуть долину. Сорок лет он молол "
+            + "зерно для всех хозяйств между рекой и холмами и узнавал каждую семью по стуку телеги на каменном "
+            + "мосту. Мельницу построил его отец, который пришёл с севера только с мешком инструментов и упрямой "
+            + "верой в то, что вода всегда найдёт способ работать на терпеливого человека. Теперь колесо вращалось "
+            + "медленно, балки устали, а молодые люди уехали в города, где на фабриках платили деньгами, а не мукой. "
+            + "В последний вечер он прошёл вдоль берега и слушал воду, которая совсем не изменилась. Она говорила "
+            + "тем же низким голосом, несла листья и ветки к морю и не думала о том, кто стоит рядом. Он вспоминал "
+            + "зиму большого наводнения, когда вся деревня ночевала в церкви и колокола звонили каждый час, чтобы "
+            + "никто не забыл, что остальные живы. Он думал о жене, которая смеялась над ним, когда он разговаривал "
+            + "с колесом, как с лошадью, и о дочери, которая теперь писала письма из города, где он никогда не был. "
+            + "Когда солнце село за холмы, он вернулся в дом, зажёг лампу и начал собирать немногие вещи, которые "
+            + "хотел сохранить: нож, часы, которые давно не ходили, молитвенник и маленький рисунок мельницы, "
+            + "сделанный путником много лет назад. Утром пришёл сосед с повозкой, и они вместе поехали по дороге "
+            + "вдоль реки. Оба почти не говорили. На вершине холма мельник попросил остановиться и долго смотрел "
+            + "назад, на крышу, на колесо и на тонкую струйку дыма, которая всё ещё поднималась из трубы, потому что "
+            + "он забыл потушить огонь. Потом он сказал, что это хорошо, что дом ещё немного побудет тёплым и что "
+            + "кто-нибудь наверняка поселится там до снега. Сосед кивнул, тронул лошадей кнутом, и повозка покатилась "
+            + "к городу, где улицы были шумными и яркими и где никто не знал стука его телеги на мосту.";
+
+    @Test
+    public void keyOfVigenereCipherIsFound() throws IOException {
+        assertKeyFound(Alphabet.ENGLISH, ENGLISH, "CRYPT");
+        assertKeyFound(Alphabet.RUSSIAN, RUSSIAN, "ШИФРЫ");
+    }
+
+    @Test
+    public void trueShiftIsRankedFirst() {
+        try (Cryptanalyst cryptanalyst = new Cryptanalyst(Alphabet.ENGLISH, 1)) {
+            Histogram histogram = new Histogram(Alphabet.ENGLISH);
+            histogram.count(encrypt(Alphabet.ENGLISH, ENGLISH, new int[]{7}));
+            assertEquals(7, cryptanalyst.shifts(histogram).get(0).getShift());
+        }
+        try (Cryptanalyst cryptanalyst = new Cryptanalyst(Alphabet.RUSSIAN, 1)) {
+            Histogram histogram = new Histogram(Alphabet.RUSSIAN);
+            histogram.count(encrypt(Alphabet.RUSSIAN, RUSSIAN, new int[]{20}));
+            assertEquals(20, cryptanalyst.shifts(histogram).get(0).getShift());
+        }
+    }
+
+    private static void assertKeyFound(Alphabet alphabet, String text, String key) throws IOException {
+        int[] shifts = new int[key.length()];
+        for (int i = 0; i < shifts.length; i++) {
+            shifts[i] = alphabet.indexOf(key.charAt(i));
+        }
+        // A few KB of text
+        String plain = text + " " + text;
+        String cipher = encrypt(alphabet, plain, shifts);
+        try (Cryptanalyst cryptanalyst = new Cryptanalyst(alphabet, 2)) {
+            Cryptanalyst.Columns columns = cryptanalyst.columns(TextSource.of(new StringReader(cipher)),
+                    Cryptanalyst.MAX_KEY_LENGTH, ProgressMonitor.NONE);
+            Cryptanalyst.Key found = cryptanalyst.crack(columns);
+            assertEquals(key, found.getLetters());
+
+            StringWriter decrypted = new StringWriter();
+            cryptanalyst.decrypt(TextSource.of(new StringReader(cipher)), found.getShifts(), decrypted,
+                    ProgressMonitor.NONE);
+            assertEquals(plain, decrypted.toString());
+        }
+    }
+
+    /**
+     * Shift letter number {@code n} by {@code shifts[n % shifts.length]}, case and other characters are kept
+     */
+    private static String encrypt(Alphabet alphabet, String text, int[] shifts) {
+        StringBuilder res = new StringBuilder(text.length());
+        int position = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int index = alphabet.indexOf(c);
+            if (index < 0) {
+                res.append(c);
+                continue;
+            }
+            char letter = alphabet.letterAt((index + shifts[position]) % alphabet.size());
+            res.append(Character.isLowerCase(c) ? Character.toLowerCase(letter) : letter);
+            position = (position + 1) % shifts.length;
+        }
+        return res.toString();
+    }
+}
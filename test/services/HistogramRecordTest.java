@@ -0,0 +1,92 @@
+package services;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * @author tkaczenko
+ */
+public class HistogramRecordTest {
+    @Test
+    public void recordIsReadAsWritten() {
+        Histogram histogram = new Histogram(Alphabet.UKRAINIAN);
+        histogram.count("Гарна ґанок, їжак і є. 12345");
+        byte[] hash = new byte[32];
+        Arrays.fill(hash, (byte) 0xAB);
+        HistogramRecord record = new HistogramRecord(histogram, hash, 300);
+
+        ByteBuffer buffer = ByteBuffer.allocate(record.size() + 3);
+        record.write(buffer);
+        assertEquals(record.size(), buffer.position());
+        buffer.flip();
+        HistogramRecord read = HistogramRecord.read(buffer);
+
+        assertEquals(record.size(), buffer.position());
+        assertEquals(Alphabet.UKRAINIAN, read.getHistogram().getAlphabet());
+        assertArrayEquals(histogram.counts(), read.getHistogram().counts());
+        assertArrayEquals(hash, read.getHash());
+        assertEquals(new String(new char[32]).replace("\0", "ab"), read.getHashHex());
+        assertArrayEquals(hash, HistogramRecord.unhex(read.getHashHex()));
+        assertEquals(300, read.getSources());
+    }
+
+    @Test
+    public void everyChangedByteIsFound() {
+        Histogram histogram = new Histogram(Alphabet.ENGLISH);
+        histogram.count("The quick brown fox jumps over the lazy dog");
+        byte[] bytes = encode(new HistogramRecord(histogram, new byte[0], 1));
+        for (int i = 0; i < bytes.length; i++) {
+            byte[] broken = bytes.clone();
+            broken[i] ^= 0x41;
+            assertBroken(broken);
+        }
+        for (int length = 0; length < bytes.length; length++) {
+            assertBroken(Arrays.copyOf(bytes, length));
+        }
+    }
+
+    @Test
+    public void negativeLengthIsBroken() {
+        ByteBuffer buffer = ByteBuffer.allocate(32);
+        buffer.putInt(0x54414852).put((byte) HistogramRecord.VERSION);
+        // Length of language is -1 in ten bytes
+        for (int i = 0; i < 9; i++) {
+            buffer.put((byte) 0xFF);
+        }
+        buffer.put((byte) 0x01);
+        assertBroken(Arrays.copyOf(buffer.array(), buffer.position()));
+    }
+
+    @Test
+    public void negativeCountersAndSourcesAreBroken() {
+        Histogram histogram = new Histogram(Alphabet.ENGLISH);
+        histogram.count("abc");
+        histogram.counts()[2] = -5;
+        assertBroken(encode(new HistogramRecord(histogram, new byte[0], 1)));
+
+        Histogram valid = new Histogram(Alphabet.ENGLISH);
+        valid.count("abc");
+        assertBroken(encode(new HistogramRecord(valid, new byte[0], -1)));
+    }
+
+    private static byte[] encode(HistogramRecord record) {
+        ByteBuffer buffer = ByteBuffer.allocate(record.size());
+        record.write(buffer);
+        return buffer.array();
+    }
+
+    private static void assertBroken(byte[] bytes) {
+        try {
+            HistogramRecord.read(ByteBuffer.wrap(bytes));
+            fail("Broken record is read");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package services;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author tkaczenko
+ */
+public class NGramCounterTest {
+    @Test
+    public void longestGramsOfLargestAlphabetHaveValidKeys() {
+        assertEquals(33, Alphabet.RUSSIAN.size());
+        String text = "ЯЯЯЯЯЯЯЯЯЯЯЯЯЯ достопримечательность, человеконенавистничество\nЁжикЯЯЯЯЯЯЯЯЯЯЯЯЯ";
+        NGramCounter counter = new NGramCounter(Alphabet.RUSSIAN, NGramCounter.MAX_GRAM_SIZE);
+        counter.count(text);
+
+        Map<String, Long> counts = new HashMap<>();
+        for (long key : counter.keys()) {
+            assertTrue("Key must be positive: " + key, key >= 0);
+            counts.put(counter.label(key), counter.get(key));
+        }
+        assertEquals(expected(text, NGramCounter.MAX_GRAM_SIZE), counts);
+        assertEquals(Long.valueOf(5), counts.get("ЯЯЯЯЯЯЯЯЯЯЯЯ"));
+    }
+
+    @Test
+    public void densePairsAreCountedInsideWords() {
+        NGramCounter counter = new NGramCounter(Alphabet.ENGLISH, 2);
+        counter.count("abab, ba");
+        Map<String, Long> counts = new HashMap<>();
+        for (long key : counter.keys()) {
+            counts.put(counter.label(key), counter.get(key));
+        }
+        assertEquals(expected("abab, ba", 2), counts);
+    }
+
+    /**
+     * Count n-grams of words split by whitespace without characters which aren't letters
+     */
+    private static Map<String, Long> expected(String text, int gramSize) {
+        Map<String, Long> res = new HashMap<>();
+        for (String word : text.split("\\s+")) {
+            String letters = word.replaceAll("[^\\p{L}]", "").toUpperCase();
+            for (int i = 0; i + gramSize <= letters.length(); i++) {
+                res.merge(letters.substring(i, i + gramSize), 1L, Long::sum);
+            }
+        }
+        return res;
+    }
+}
@@ -0,0 +1,68 @@
+package services;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author tkaczenko
+ */
+public class WindowProfilerTest {
+    @Test
+    public void lastWindowEndsAtEndOfText() {
+        List<String> windows = profile(WindowProfiler.Unit.LETTERS, 3, 2, "abcdefgh", 8);
+        assertEquals(Arrays.asList("[0,3)", "[2,5)", "[4,7)", "[5,8)"), windows);
+    }
+
+    @Test
+    public void lastLineWithoutLineBreakIsCounted() {
+        List<String> windows = profile(WindowProfiler.Unit.LINES, 2, 1, "ab\ncd\nef", 8);
+        assertEquals(Arrays.asList("[0,5)", "[3,8)"), windows);
+    }
+
+    @Test
+    public void windowsHaveLettersOfTheirSlices() {
+        Random random = new Random(5);
+        StringBuilder text = new StringBuilder();
+        String characters = "aabcdeeefghijklmnoopqrstuvwxyzZE.,;- 0\n";
+        for (int i = 0; i < 5000; i++) {
+            text.append(characters.charAt(random.nextInt(characters.length())));
+        }
+        for (WindowProfiler.Unit unit : WindowProfiler.Unit.values()) {
+            for (int chunk : new int[]{1, 7, 4096}) {
+                assertTrue(profile(unit, 13, 5, text.toString(), chunk).size() > 1);
+            }
+        }
+    }
+
+    /**
+     * Profile text by chunks and check counters of every window against its slice of text
+     *
+     * @return Ranges of windows
+     */
+    private static List<String> profile(WindowProfiler.Unit unit, int size, int step, String text, int chunk) {
+        List<String> res = new ArrayList<>();
+        WindowProfiler profiler = new WindowProfiler(Alphabet.ENGLISH, unit, size, step, window -> {
+            Histogram expected = new Histogram(Alphabet.ENGLISH);
+            expected.count(text.substring((int) window.getStart(), (int) window.getEnd()));
+            String range = "[" + window.getStart() + "," + window.getEnd() + ")";
+            assertEquals(range, expected.letters(), window.letters());
+            for (int i = 0; i < Alphabet.ENGLISH.size(); i++) {
+                assertEquals(range, expected.get(i), window.get(i));
+                assertEquals(range, expected.get(i), window.toHistogram().get(i));
+            }
+            res.add(range);
+        });
+        for (int start = 0; start < text.length(); start += chunk) {
+            profiler.count(text.substring(start, Math.min(text.length(), start + chunk)));
+        }
+        profiler.end();
+        return res;
+    }
+}
@@ -0,0 +1,101 @@
+package services;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author tkaczenko
+ */
+public class WordCounterTest {
+    private static final int VOCABULARY = 2000;
+    private static final int WORDS = 100_000;
+
+    @Test
+    public void sketchBoundsExactFrequenciesAcrossChunks() {
+        String text = skewedText(new Random(42));
+        WordCounter exact = WordCounter.exact(Alphabet.ENGLISH);
+        WordCounter sketch = WordCounter.sketch(Alphabet.ENGLISH, 1024);
+        Random random = new Random(7);
+        for (int start = 0; start < text.length(); ) {
+            // Short chunks split most words between two calls
+            int end = Math.min(text.length(), start + 1 + random.nextInt(16));
+            exact.count(text.subSequence(start, end));
+            sketch.count(text.subSequence(start, end));
+            start = end;
+        }
+        exact.endWord();
+        sketch.endWord();
+
+        assertFalse(sketch.isExact());
+        assertEquals(WORDS, exact.total());
+        assertEquals(exact.total(), sketch.total());
+        List<WordCounter.Word> top = sketch.top(10);
+        assertEquals(10, top.size());
+        for (WordCounter.Word word : top) {
+            long count = exact.get(word.getWord());
+            assertTrue(word.getWord() + " " + count + " > " + word.getCount(), count <= word.getCount());
+            assertTrue(word.getWord() + " " + count + " < " + (word.getCount() - word.getError()),
+                    count >= word.getCount() - word.getError());
+        }
+        for (WordCounter.Word word : exact.top(VOCABULARY)) {
+            assertTrue(word.getWord(), sketch.get(word.getWord()) >= word.getCount());
+        }
+        // The most frequent words are far above total / 16 entries of summary
+        List<String> found = new ArrayList<>();
+        for (WordCounter.Word word : top) {
+            found.add(word.getWord());
+        }
+        for (WordCounter.Word word : exact.top(3)) {
+            assertTrue(word.getWord() + " isn't found", found.contains(word.getWord()));
+        }
+    }
+
+    @Test
+    public void exactCounterKeepsWordSplitByChunks() {
+        WordCounter counter = WordCounter.exact(Alphabet.ENGLISH);
+        counter.count("ab");
+        counter.count("c abc\n");
+        counter.count("ab");
+        counter.endWord();
+        List<WordCounter.Word> top = counter.top(2);
+        assertEquals(2, top.size());
+        assertEquals(2, top.get(0).getCount());
+        assertEquals(0, top.get(0).getError());
+        assertEquals(1, top.get(1).getCount());
+        assertEquals(3, counter.total());
+    }
+
+    /**
+     * Words of Zipf distribution, word of rank {@code r} has weight {@code 1 / r}
+     */
+    private static String skewedText(Random random) {
+        double[] cumulative = new double[VOCABULARY];
+        double sum = 0;
+        for (int i = 0; i < VOCABULARY; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        StringBuilder res = new StringBuilder();
+        for (int i = 0; i < WORDS; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            res.append(word(index < 0 ? -index - 1 : index)).append(i % 12 == 11 ? '\n' : ' ');
+        }
+        return res.toString();
+    }
+
+    private static String word(int index) {
+        StringBuilder res = new StringBuilder();
+        for (int i = index + 1; i > 0; i /= 26) {
+            res.append((char) ('a' + i % 26));
+        }
+        return res.toString();
+    }
+}